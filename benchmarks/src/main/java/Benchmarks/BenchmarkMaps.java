@@ -0,0 +1,29 @@
+package Benchmarks;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.RasterizationMode;
+
+/**
+ * Fixed-seed settings shared by the benchmarks, so every run measures the same maps.
+ */
+final class BenchmarkMaps {
+    static final long SEED = 20170212L;
+
+    private BenchmarkMaps() {}
+
+    static Options options(String size, int polygons)
+    {
+        String[] dimensions = size.split("x");
+        Options settings = new Options(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), polygons);
+        settings.setSeed(SEED);
+        return settings;
+    }
+
+    static Options options(String size, int polygons, RasterizationMode mode, int parallelism)
+    {
+        Options settings = options(size, polygons);
+        settings.setRasterizationMode(mode);
+        settings.setParallelism(parallelism);
+        return settings;
+    }
+}
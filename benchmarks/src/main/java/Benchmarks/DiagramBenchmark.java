@@ -0,0 +1,64 @@
+package Benchmarks;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.RasterizationMode;
+import MapGeneration.GenerationSettings.SeedSampling;
+import MapGeneration.VoronoiDiagram;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VoronoiDiagram.generate at several pixel and polygon scales. BruteForce is left out of the
+ * default parameters because it takes minutes at the larger scales; pass -p mode=BruteForce to include it.
+ * Lloyd relaxation is off by default, -p relaxation=3 measures three rounds on top of the rasterization,
+ * -p sampling=PoissonDisk places the seeds by Poisson-disk sampling instead of uniform random points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class DiagramBenchmark {
+    @Param({"600x300", "1600x900", "4000x2000"})
+    public String size;
+
+    @Param({"2000", "8000", "32000"})
+    public int polygons;
+
+    @Param({"SeedGrid", "Delaunay"})
+    public RasterizationMode mode;
+
+    @Param({"1"})
+    public int parallelism;
+
+    @Param({"0"})
+    public int relaxation;
+
+    @Param({"UniformRandom"})
+    public SeedSampling sampling;
+
+    private Options settings;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        settings = BenchmarkMaps.options(size, polygons, mode, parallelism);
+        settings.setRelaxationIterations(relaxation);
+        settings.setSeedSampling(sampling);
+    }
+
+    @Benchmark
+    public VoronoiDiagram generate()
+    {
+        VoronoiDiagram diagram = new VoronoiDiagram(settings.getXSize(), settings.getYSize(), settings.getRasterizationMode());
+        diagram.setParallelism(settings.getParallelism());
+        diagram.setPixelStorage(settings.getPixelStorage());
+        diagram.setSeed(settings.getSeed());
+        diagram.setRelaxationIterations(settings.getRelaxationIterations());
+        diagram.setSeedSampling(settings.getSeedSampling());
+        diagram.generate(settings.getPolygons());
+        return diagram;
+    }
+}
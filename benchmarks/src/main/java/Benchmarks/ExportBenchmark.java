@@ -0,0 +1,73 @@
+package Benchmarks;
+
+import MapGeneration.DataExport.CityToJsonConverter;
+import MapGeneration.DataExport.MapJsonExporter;
+import MapGeneration.Map;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CityToJsonConverter.convertAndSave, which writes Cities.json to the working directory, and
+ * MapJsonExporter streaming every polygon into a discarding stream.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+    @Param({"1600x900"})
+    public String size;
+
+    @Param({"8000", "32000"})
+    public int polygons;
+
+    private Map map;
+    private CityToJsonConverter converter;
+    private MapJsonExporter jsonExporter;
+    private MapJsonExporter geoJsonExporter;
+    private OutputStream discard;
+
+    @Setup(Level.Trial)
+    public void generateMap()
+    {
+        map = new Map(BenchmarkMaps.options(size, polygons));
+        map.getMap();
+        converter = new CityToJsonConverter();
+        jsonExporter = new MapJsonExporter();
+        geoJsonExporter = new MapJsonExporter();
+        geoJsonExporter.setGeoJson(true);
+        discard = new OutputStream() {
+            @Override
+            public void write(int b) {}
+
+            @Override
+            public void write(byte[] b, int off, int len) {}
+        };
+    }
+
+    @Benchmark
+    public Map convertAndSave() throws IOException
+    {
+        converter.convertAndSave(map);
+        return map;
+    }
+
+    @Benchmark
+    public Map streamJson() throws IOException
+    {
+        jsonExporter.write(map, discard);
+        return map;
+    }
+
+    @Benchmark
+    public Map streamGeoJson() throws IOException
+    {
+        geoJsonExporter.write(map, discard);
+        return map;
+    }
+}
@@ -0,0 +1,71 @@
+package Benchmarks;
+
+import MapGeneration.Graph.SpatialIndex;
+import MapGeneration.Map;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SpatialIndex bulk lookups of a fixed batch of random points on a generated map; divide by the batch
+ * size for the time of one lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+    private static final int BATCH = 1 << 20;
+
+    @Param({"1600x900"})
+    public String size;
+
+    @Param({"8000", "32000"})
+    public int polygons;
+
+    private SpatialIndex index;
+    private int[] xs;
+    private int[] ys;
+    private int[] result;
+
+    @Setup(Level.Trial)
+    public void generateMap()
+    {
+        Map map = new Map(BenchmarkMaps.options(size, polygons));
+        map.getMap();
+        index = map.diagram.createSpatialIndex();
+        Random random = new Random(BenchmarkMaps.SEED);
+        xs = new int[BATCH];
+        ys = new int[BATCH];
+        result = new int[BATCH];
+        for(int i = 0; i < BATCH; i++)
+        {
+            xs[i] = random.nextInt(map.getSettings().getXSize());
+            ys[i] = random.nextInt(map.getSettings().getYSize());
+        }
+    }
+
+    @Benchmark
+    public int[] polygonsAt()
+    {
+        index.polygonsAt(xs, ys, result);
+        return result;
+    }
+
+    @Benchmark
+    public int[] nearestPolygons()
+    {
+        index.nearestPolygons(xs, ys, result);
+        return result;
+    }
+
+    @Benchmark
+    public int[] nearestCities()
+    {
+        index.nearestCities(xs, ys, result);
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package Benchmarks;
+
+import MapGeneration.DataExport.MapPrinter;
+import MapGeneration.DataExport.TilePyramid;
+import MapGeneration.Map;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapPrinter.paint into an offscreen image of the map's size, and a TilePyramid of every zoom level
+ * handed to a sink that drops the tiles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+    @Param({"600x300", "1600x900"})
+    public String size;
+
+    @Param({"8000"})
+    public int polygons;
+
+    private MapPrinter printer;
+    private BufferedImage image;
+    private TilePyramid pyramid;
+
+    @Setup(Level.Trial)
+    public void generateMap()
+    {
+        Map map = new Map(BenchmarkMaps.options(size, polygons));
+        printer = map.getMap();
+        pyramid = printer.getTilePyramid();
+        image = new BufferedImage(map.getSettings().getXSize(), map.getSettings().getYSize(), BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Benchmark
+    public BufferedImage paint()
+    {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            printer.paint(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    @Benchmark
+    public TilePyramid tilePyramid() throws IOException
+    {
+        pyramid.write((zoom, tileX, tileY, tile) -> {});
+        return pyramid;
+    }
+}
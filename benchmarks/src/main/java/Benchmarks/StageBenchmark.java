@@ -0,0 +1,81 @@
+package Benchmarks;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.RiverModel;
+import MapGeneration.Pipeline.DiagramStage;
+import MapGeneration.Pipeline.GenerationContext;
+import MapGeneration.Pipeline.GenerationPipeline;
+import MapGeneration.Pipeline.GenerationStage;
+import MapGeneration.VoronoiDiagram;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each Map stage on its own. The diagram is built once per trial; before every invocation a copy with
+ * empty terrain is restored from its ownership grid and adjacency and the stages preceding the measured
+ * one are run, so only the measured stage is timed. -p riverModel=FlowAccumulation measures the flow river engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class StageBenchmark {
+    @Param({"BodiesOfWater", "Elevation", "Climate", "Rivers", "Biomes", "Cities"})
+    public String stage;
+
+    @Param({"1600x900"})
+    public String size;
+
+    @Param({"8000", "32000"})
+    public int polygons;
+
+    @Param({"SourceTracing"})
+    public RiverModel riverModel;
+
+    private Options settings;
+    private VoronoiDiagram diagram;
+    private int[] centerXs;
+    private int[] centerYs;
+    private GenerationStage measured;
+    private GenerationContext context;
+
+    @Setup(Level.Trial)
+    public void buildDiagram()
+    {
+        settings = BenchmarkMaps.options(size, polygons);
+        settings.setRiverModel(riverModel);
+        diagram = DiagramStage.createDiagram(settings, null);
+        centerXs = new int[diagram.polygons.size()];
+        centerYs = new int[diagram.polygons.size()];
+        for(int i = 0; i < centerXs.length; i++)
+        {
+            centerXs[i] = diagram.polygons.get(i).centerPoint.getX();
+            centerYs[i] = diagram.polygons.get(i).centerPoint.getY();
+        }
+        for(GenerationStage candidate: GenerationPipeline.standard().getStages())
+            if(candidate.getName().equals(stage)) measured = candidate;
+        if(measured == null) throw new IllegalArgumentException("Unknown stage " + stage);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareStage()
+    {
+        VoronoiDiagram fresh = VoronoiDiagram.restore(centerXs, centerYs, diagram.getOwnership(), diagram.getGraph(), settings.getPixelStorage());
+        context = new GenerationContext(settings, fresh);
+        for(GenerationStage preceding: GenerationPipeline.standard().getStages())
+        {
+            if(preceding.getName().equals(stage)) break;
+            preceding.run(context);
+        }
+    }
+
+    @Benchmark
+    public GenerationContext runStage()
+    {
+        measured.run(context);
+        return context;
+    }
+}
@@ -0,0 +1,81 @@
+package MapGeneration.Graph;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.Map;
+import MapGeneration.Tiling.TiledWorld;
+import MapGeneration.VoronoiDiagram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The index answers like a scan over every center, also on a region of a tiled world, where the polygons
+ * cut by the region border keep centers outside of the map.
+ */
+public class SpatialIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void regionWithCentersOutsideTheMap() throws Exception
+    {
+        Options template = new Options(10, 10, 10);
+        template.setSeed(5);
+        TiledWorld world = new TiledWorld(template, 64, 4, 4, 20, directory, 4);
+        Map region = world.generateRegion(1, 1, 2, 2);
+        VoronoiDiagram diagram = region.diagram;
+        int[] xs = new int[diagram.polygons.size()], ys = new int[diagram.polygons.size()];
+        for(int polygon = 0; polygon < xs.length; polygon++)
+        {
+            xs[polygon] = diagram.polygons.get(polygon).centerPoint.getX();
+            ys[polygon] = diagram.polygons.get(polygon).centerPoint.getY();
+        }
+        assertTrue(IntStream.range(0, xs.length).anyMatch(p -> xs[p] < 0 || ys[p] < 0 || xs[p] >= diagram.xSize || ys[p] >= diagram.ySize),
+                "no center outside of the region");
+
+        SpatialIndex index = diagram.createSpatialIndex();
+        for(int y = 0; y < diagram.ySize; y++)
+        {
+            for(int x = 0; x < diagram.xSize; x++) assertEquals(index.polygonAt(x, y), index.nearestPolygon(x, y), "nearest at " + x + "," + y);
+        }
+        Random random = new Random(3);
+        for(int query = 0; query < 2000; query++)
+        {
+            int x = random.nextInt(diagram.xSize + 200) - 100, y = random.nextInt(diagram.ySize + 200) - 100;
+            int k = random.nextInt(8);
+            assertArrayEquals(nearest(xs, ys, x, y, k), index.nearestPolygons(x, y, k), k + " nearest to " + x + "," + y);
+            int toX = x + random.nextInt(120), toY = y + random.nextInt(120);
+            int[] inside = IntStream.range(0, xs.length).filter(p -> xs[p] >= x && xs[p] <= toX && ys[p] >= y && ys[p] <= toY).toArray();
+            assertArrayEquals(inside, index.polygonsInRectangle(x, y, toX, toY), "rectangle from " + x + "," + y + " to " + toX + "," + toY);
+        }
+    }
+
+    // the k closest centers by a full scan, ties to the lower index
+    private static int[] nearest(int[] xs, int[] ys, int x, int y, int k)
+    {
+        Integer[] order = new Integer[xs.length];
+        for(int polygon = 0; polygon < order.length; polygon++) order[polygon] = polygon;
+        Arrays.sort(order, (a, b) -> {
+            long distanceA = distanceSquared(xs[a], ys[a], x, y), distanceB = distanceSquared(xs[b], ys[b], x, y);
+            return distanceA != distanceB ? Long.compare(distanceA, distanceB) : Integer.compare(a, b);
+        });
+        int[] found = new int[Math.min(k, order.length)];
+        for(int i = 0; i < found.length; i++) found[i] = order[i];
+        return found;
+    }
+
+    private static long distanceSquared(int x, int y, int toX, int toY)
+    {
+        long dx = x - (long) toX, dy = y - (long) toY;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,133 @@
+package MapGeneration;
+
+import MapGeneration.GenerationSettings.RasterizationMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Every rasterization mode has to assign each pixel to the same polygon as the brute-force scan,
+ * the nearest center with ties to the lowest index.
+ */
+public class RasterizationModeTest {
+
+    @Test
+    public void randomCenters()
+    {
+        for(long seed = 1; seed <= 4; seed++)
+        {
+            assertSameOwnership(160, 90, seed, 300);
+            assertSameOwnership(64, 200, seed, 150);
+            // about one center per 7 pixels, so many pixels lie exactly between two of them
+            assertSameOwnership(97, 61, seed, 900);
+        }
+    }
+
+    @Test
+    public void latticeAlignedCenters()
+    {
+        // 48 centers on 64x48 give a SeedGrid cell size of 8, so the centers sit on the cell corners
+        assertSameOwnership(64, 48, lattice(64, 48, 0, 8));
+        assertSameOwnership(100, 70, lattice(100, 70, 3, 7));
+        assertSameOwnership(90, 60, lattice(90, 60, 1, 2));
+    }
+
+    @Test
+    public void tiedCenters()
+    {
+        // co-circular around (40, 30): the axis points at distance 5 and the 3-4-5 points, plus the center itself
+        int[][] circle = {{40, 30}, {45, 30}, {35, 30}, {40, 35}, {40, 25}, {43, 34}, {37, 34}, {43, 26}, {37, 26},
+                {44, 33}, {36, 33}, {44, 27}, {36, 27}};
+        assertSameOwnership(80, 60, columns(circle));
+        // mirrored pairs, every pixel on the mirror axes is tied
+        int[][] mirrored = {{10, 10}, {69, 10}, {10, 49}, {69, 49}, {25, 20}, {54, 20}, {25, 39}, {54, 39}, {39, 5}, {40, 5}};
+        assertSameOwnership(80, 60, columns(mirrored));
+        int[][] collinear = new int[12][];
+        for(int i = 0; i < collinear.length; i++) collinear[i] = new int[]{5 + 6 * i, 20};
+        assertSameOwnership(80, 40, columns(collinear));
+    }
+
+    @Test
+    public void parallelStripes()
+    {
+        for(RasterizationMode mode: new RasterizationMode[]{RasterizationMode.SeedGrid, RasterizationMode.Delaunay})
+        {
+            VoronoiDiagram expected = new VoronoiDiagram(150, 100, RasterizationMode.BruteForce);
+            expected.setSeed(7);
+            expected.generate(400);
+            VoronoiDiagram actual = new VoronoiDiagram(150, 100, mode);
+            actual.setSeed(7);
+            actual.setParallelism(3);
+            actual.generate(400);
+            assertArrayEquals(ownership(expected), ownership(actual), mode + " with 3 stripes");
+        }
+    }
+
+    private static void assertSameOwnership(int xSize, int ySize, long seed, int polygons)
+    {
+        VoronoiDiagram expected = new VoronoiDiagram(xSize, ySize, RasterizationMode.BruteForce);
+        expected.setSeed(seed);
+        expected.generate(polygons);
+        for(RasterizationMode mode: RasterizationMode.values())
+        {
+            VoronoiDiagram actual = new VoronoiDiagram(xSize, ySize, mode);
+            actual.setSeed(seed);
+            actual.generate(polygons);
+            assertArrayEquals(ownership(expected), ownership(actual), mode + " on " + xSize + "x" + ySize + ", seed " + seed);
+        }
+    }
+
+    private static void assertSameOwnership(int xSize, int ySize, int[][] centers)
+    {
+        VoronoiDiagram expected = new VoronoiDiagram(xSize, ySize, RasterizationMode.BruteForce);
+        expected.generate(centers[0], centers[1]);
+        for(RasterizationMode mode: RasterizationMode.values())
+        {
+            VoronoiDiagram actual = new VoronoiDiagram(xSize, ySize, mode);
+            actual.generate(centers[0], centers[1]);
+            assertArrayEquals(ownership(expected), ownership(actual), mode + " on " + xSize + "x" + ySize + " around " + centers[0].length + " fixed centers");
+        }
+    }
+
+    private static int[] ownership(VoronoiDiagram diagram)
+    {
+        int[] owners = new int[diagram.xSize * diagram.ySize];
+        for(int y = 0; y < diagram.ySize; y++)
+        {
+            for(int x = 0; x < diagram.xSize; x++) owners[y * diagram.xSize + x] = diagram.getOwnerIndex(x, y);
+        }
+        return owners;
+    }
+
+    // centers every step pixels starting at offset, column by column, as {xs, ys}
+    private static int[][] lattice(int xSize, int ySize, int offset, int step)
+    {
+        int columns = (xSize - offset + step - 1) / step, rows = (ySize - offset + step - 1) / step;
+        int[] xs = new int[columns * rows], ys = new int[columns * rows];
+        for(int column = 0; column < columns; column++)
+        {
+            for(int row = 0; row < rows; row++)
+            {
+                xs[column * rows + row] = offset + column * step;
+                ys[column * rows + row] = offset + row * step;
+            }
+        }
+        return new int[][]{xs, ys};
+    }
+
+    // sorted by x, then y as VoronoiDiagram expects, and split into {xs, ys}
+    private static int[][] columns(int[][] points)
+    {
+        points = points.clone();
+        Arrays.sort(points, (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        int[] xs = new int[points.length], ys = new int[points.length];
+        for(int i = 0; i < points.length; i++)
+        {
+            xs[i] = points[i][0];
+            ys[i] = points[i][1];
+        }
+        return new int[][]{xs, ys};
+    }
+}
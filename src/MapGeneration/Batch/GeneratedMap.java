@@ -0,0 +1,55 @@
+package MapGeneration.Batch;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.Map;
+
+/**
+ * Outcome of one map of a MapGenerator batch: the generated map, or the error that stopped it.
+ */
+public class GeneratedMap {
+    private final int index;
+    private final Options settings;
+    private final Map map;
+    private final Throwable error;
+    final int memoryPermits;
+
+    GeneratedMap(int index, Options settings, Map map, Throwable error, int memoryPermits)
+    {
+        this.index = index;
+        this.settings = settings;
+        this.map = map;
+        this.error = error;
+        this.memoryPermits = memoryPermits;
+    }
+
+    /**
+     * Position of the map's Options in the submitted list, results arrive in completion order.
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public Options getSettings()
+    {
+        return settings;
+    }
+
+    public boolean isSuccessful()
+    {
+        return error == null;
+    }
+
+    /**
+     * The generated map, null if generation failed.
+     */
+    public Map getMap()
+    {
+        return map;
+    }
+
+    public Throwable getError()
+    {
+        return error;
+    }
+}
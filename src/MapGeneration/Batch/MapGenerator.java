@@ -0,0 +1,221 @@
+package MapGeneration.Batch;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.PixelStorage;
+import MapGeneration.Map;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Thread-safe service generating batches of maps concurrently on an executor.
+ * Before a map starts it reserves its estimated size from a memory budget and keeps the reservation until
+ * the result stream hands the map out, so neither running generations nor finished maps waiting for a slow
+ * consumer can take more than the budget. Reservations are granted first come, first served.
+ * Each map still uses its own Options parallelism, with many maps in flight a parallelism of 1 usually gives
+ * the best throughput.
+ */
+public class MapGenerator implements AutoCloseable {
+    private static final int PERMIT_BYTES = 1024;
+    // measured retained sizes plus headroom for the buffers generation allocates on the way
+    private static final long BYTES_PER_POLYGON = 1024;
+    private static final long TEMPORARY_BYTES_PER_PIXEL = 4;
+    private static final long POINT_GRID_BYTES_PER_PIXEL = 32;
+
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Semaphore memory;
+    private final int memoryPermits;
+
+    /**
+     * Runs the maps on the given executor, which stays owned by the caller.
+     */
+    public MapGenerator(Executor executor, long memoryBudgetBytes)
+    {
+        this(executor, false, memoryBudgetBytes);
+    }
+
+    private MapGenerator(Executor executor, boolean ownsExecutor, long memoryBudgetBytes)
+    {
+        if(memoryBudgetBytes <= 0) throw new IllegalArgumentException("Memory budget must be positive, got " + memoryBudgetBytes);
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        memoryPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudgetBytes / PERMIT_BYTES));
+        memory = new Semaphore(memoryPermits, true);
+    }
+
+    public static MapGenerator withFixedPool(int threads, long memoryBudgetBytes)
+    {
+        return new MapGenerator(Executors.newFixedThreadPool(threads), true, memoryBudgetBytes);
+    }
+
+    /**
+     * One virtual thread per map, available on Java 21 and newer; older runtimes get an IllegalStateException.
+     */
+    public static MapGenerator withVirtualThreads(long memoryBudgetBytes)
+    {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new MapGenerator((ExecutorService) factory.invoke(null), true, memoryBudgetBytes);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or newer", e);
+        }
+    }
+
+    /**
+     * Three quarters of the maximum heap.
+     */
+    public static long defaultMemoryBudget()
+    {
+        return Runtime.getRuntime().maxMemory() / 4 * 3;
+    }
+
+    /**
+     * Heap a map with these settings needs while it is generated and afterwards.
+     */
+    public static long estimateBytes(Options settings)
+    {
+        long pixels = (long) settings.getXSize() * settings.getYSize();
+        long ownershipBytes = settings.getPolygons() <= 1 << 16 ? 2 : 4;
+        long bytes = pixels * (ownershipBytes + TEMPORARY_BYTES_PER_PIXEL) + settings.getPolygons() * BYTES_PER_POLYGON;
+        if(settings.getPixelStorage() == PixelStorage.PointGrid) bytes += pixels * POINT_GRID_BYTES_PER_PIXEL;
+        return bytes;
+    }
+
+    /**
+     * Starts generating every map of the batch and returns the results in completion order.
+     * The Options are copied first, the caller may change them afterwards. A failed map is reported
+     * in its result instead of ending the stream. An Error such as OutOfMemoryError is not a per-map failure:
+     * it is thrown by the stream when that map's turn comes, and also on the executor thread that ran it.
+     * Closing the stream early cancels the maps not started yet. When the executor rejects a map, that map and
+     * every later one fail with the RejectedExecutionException and the maps submitted before are cancelled
+     * unless they already started, so the stream still ends.
+     */
+    public Stream<GeneratedMap> generate(List<Options> batch)
+    {
+        Batch run = new Batch(batch.size());
+        List<Options> copies = new ArrayList<>(batch.size());
+        for(Options settings: batch) copies.add(settings.copy());
+        for(int i = 0; i < copies.size(); i++)
+        {
+            int index = i;
+            Options settings = copies.get(i);
+            try {
+                executor.execute(() -> {
+                    try {
+                        run.finish(generate(run, index, settings));
+                    } catch (Error e) {
+                        run.finish(new GeneratedMap(index, settings, null, e, 0));
+                        throw e;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                run.cancelled.set(true);
+                for(int rejected = i; rejected < copies.size(); rejected++)
+                    run.finish(new GeneratedMap(rejected, copies.get(rejected), null, e, 0));
+                break;
+            }
+        }
+        return StreamSupport.stream(run, false).onClose(run::cancel);
+    }
+
+    private GeneratedMap generate(Batch run, int index, Options settings)
+    {
+        int permits = (int) Math.min(memoryPermits, (estimateBytes(settings) + PERMIT_BYTES - 1) / PERMIT_BYTES);
+        if(run.cancelled.get()) return new GeneratedMap(index, settings, null, new CancellationException(), 0);
+        try {
+            memory.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new GeneratedMap(index, settings, null, e, 0);
+        }
+        if(run.cancelled.get())
+        {
+            memory.release(permits);
+            return new GeneratedMap(index, settings, null, new CancellationException(), 0);
+        }
+        try {
+            Map map = new Map(settings);
+            map.getMap();
+            return new GeneratedMap(index, settings, map, null, permits);
+        } catch (Exception e) {
+            memory.release(permits);
+            return new GeneratedMap(index, settings, null, e, 0);
+        } catch (Error e) {
+            memory.release(permits);
+            throw e;
+        }
+    }
+
+    /**
+     * Shuts down the executor if this generator created it.
+     */
+    @Override
+    public void close()
+    {
+        if(ownsExecutor) ((ExecutorService) executor).shutdown();
+    }
+
+    /**
+     * Results of one generate call, handed out as they arrive.
+     */
+    private class Batch extends Spliterators.AbstractSpliterator<GeneratedMap> {
+        private final BlockingQueue<GeneratedMap> finished = new LinkedBlockingQueue<>();
+        // maps not started yet skip their work once set
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        // the stream was closed, results are released instead of kept for it
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private int remaining;
+
+        Batch(int size)
+        {
+            super(size, Spliterator.SIZED | Spliterator.NONNULL);
+            remaining = size;
+        }
+
+        void finish(GeneratedMap result)
+        {
+            finished.add(result);
+            if(closed.get()) releaseFinished();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super GeneratedMap> action)
+        {
+            if(remaining == 0) return false;
+            GeneratedMap result;
+            try {
+                result = finished.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for the next map");
+            }
+            remaining--;
+            memory.release(result.memoryPermits);
+            if(result.getError() instanceof Error) throw (Error) result.getError();
+            action.accept(result);
+            return true;
+        }
+
+        void cancel()
+        {
+            cancelled.set(true);
+            closed.set(true);
+            releaseFinished();
+        }
+
+        private void releaseFinished()
+        {
+            GeneratedMap result;
+            while((result = finished.poll()) != null) memory.release(result.memoryPermits);
+        }
+    }
+}
@@ -5,30 +5,39 @@ import MapGeneration.Graph.PolygonProperties.City;
 import MapGeneration.Graph.PolygonProperties.WaterType;
 import MapGeneration.Map;
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.Writer;
-import java.util.ArrayList;
 
 /**
  * Created by Phoenicia on 12.02.2017.
  */
 public class CityToJsonConverter {
     public void convertAndSave(Map map) throws IOException {
-        ArrayList<CityPolygon> toJsonList = new ArrayList();
-        for(Polygon polygon: map.diagram.polygons)
+        try(Writer out = new BufferedWriter(new FileWriter("Cities.json")))
         {
-            if(polygon.city != null)
-                toJsonList.add(new CityPolygon(polygon));
+            convert(map, out);
+            out.write(System.lineSeparator());
         }
-        PrintWriter out = new PrintWriter("Cities.json");
-        String json = new Gson().toJson(toJsonList);
-        System.out.println(json);
-        out.println(json);
-        out.close();
+    }
 
+    /**
+     * Streams the cities one by one instead of building the whole document first.
+     */
+    public void convert(Map map, Writer out) throws IOException {
+        Gson gson = new Gson();
+        JsonWriter json = new JsonWriter(out);
+        json.beginArray();
+        for(Polygon polygon: map.diagram.polygons)
+        {
+            if(polygon.getCity() != null)
+                gson.toJson(new CityPolygon(polygon), CityPolygon.class, json);
+        }
+        json.endArray();
+        json.flush();
     }
     private class CityPolygon
     {
@@ -41,15 +50,15 @@ public class CityToJsonConverter {
         boolean waterOnBottom = false;
         public CityPolygon(Polygon polygon)
         {
-            this.name = polygon.city.toString();
-        //    this.biome = getLast(polygon.biome.getClass().toString().split("\\."));
-            if(polygon.river || polygon.hasRiverNeighbour())
+            this.name = polygon.getCity().toString();
+        //    this.biome = getLast(polygon.getBiome().getClass().toString().split("\\."));
+            if(polygon.isRiver() || polygon.hasRiverNeighbour())
             {
                 isThereRiver = true;
             }
-            for(Polygon neighbour: polygon.neighborPolygons)
+            for(Polygon neighbour: polygon.getNeighborPolygons())
             {
-                if(neighbour.water != WaterType.Land)
+                if(neighbour.getWater() != WaterType.Land)
                 {
                     if(neighbour.centerPoint.getY() > polygon.centerPoint.getY()) waterOnTop = true;
                     else waterOnBottom = true;
@@ -0,0 +1,8 @@
+package MapGeneration.DataExport;
+
+/**
+ * Per-polygon columns MapJsonExporter can write.
+ */
+public enum ExportField {
+    Center, Neighbors, Water, Elevation, Moisture, Temperature, Biome, River, RiverDirection, Drainage, City, Distances, Area
+}
@@ -0,0 +1,98 @@
+package MapGeneration.DataExport;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed form of a MappedMapFile for archiving and transfer: the file is cut into fixed-size chunks
+ * that are deflated independently, so both directions stream with one chunk of memory.
+ * Extracting gives back the exact mappable file.
+ */
+public class MapArchive {
+    private static final int MAGIC = 0x574D4D5A;
+    private static final int FORMAT_VERSION = 1;
+    private static final int CHUNK_SIZE = 4 << 20;
+
+    public static void compress(Path mapFile, OutputStream stream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try(FileChannel channel = FileChannel.open(mapFile, StandardOpenOption.READ)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(CHUNK_SIZE);
+            out.writeLong(channel.size());
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+            byte[] compressed = new byte[CHUNK_SIZE + CHUNK_SIZE / 100 + 64];
+            while(true)
+            {
+                chunk.clear();
+                while(chunk.hasRemaining() && channel.read(chunk) >= 0);
+                if(chunk.position() == 0) break;
+                deflater.reset();
+                deflater.setInput(chunk.array(), 0, chunk.position());
+                deflater.finish();
+                int length = 0;
+                while(!deflater.finished())
+                {
+                    if(length == compressed.length) compressed = java.util.Arrays.copyOf(compressed, compressed.length * 2);
+                    length += deflater.deflate(compressed, length, compressed.length - length);
+                }
+                out.writeInt(chunk.position());
+                out.writeInt(length);
+                out.write(compressed, 0, length);
+            }
+            out.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static void extract(InputStream stream, Path mapFile) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if(in.readInt() != MAGIC) throw new IOException("Not a map archive");
+        int version = in.readInt();
+        if(version != FORMAT_VERSION) throw new IOException("Unsupported map archive version " + version);
+        int chunkSize = in.readInt();
+        long totalSize = in.readLong();
+        if(chunkSize <= 0 || totalSize < 0) throw new IOException("Corrupt map archive header");
+        Inflater inflater = new Inflater();
+        try(FileChannel channel = FileChannel.open(mapFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] raw = new byte[chunkSize];
+            byte[] compressed = new byte[0];
+            long written = 0;
+            while(written < totalSize)
+            {
+                int rawLength = in.readInt(), length = in.readInt();
+                if(rawLength < 0 || rawLength > chunkSize || length < 0) throw new IOException("Corrupt map archive chunk");
+                if(compressed.length < length) compressed = new byte[length];
+                in.readFully(compressed, 0, length);
+                inflater.reset();
+                inflater.setInput(compressed, 0, length);
+                int inflated = 0;
+                while(inflated < rawLength && !inflater.finished())
+                {
+                    int count = inflater.inflate(raw, inflated, rawLength - inflated);
+                    // a stream cut short asks for more input than the chunk holds and would never make progress
+                    if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) throw new IOException("Corrupt map archive chunk");
+                    inflated += count;
+                }
+                if(inflated != rawLength) throw new IOException("Corrupt map archive chunk");
+                ByteBuffer chunk = ByteBuffer.wrap(raw, 0, rawLength);
+                while(chunk.hasRemaining()) channel.write(chunk);
+                written += rawLength;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt map archive chunk", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
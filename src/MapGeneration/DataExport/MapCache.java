@@ -0,0 +1,85 @@
+package MapGeneration.DataExport;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.RiverModel;
+import MapGeneration.GenerationSettings.SeedSampling;
+import MapGeneration.Map;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * On-disk cache of finished maps, keyed by a hash of every Options field that affects the result,
+ * the seed and Map.GENERATOR_VERSION. Settings that only change how fast a map is produced
+ * (rasterization mode, parallelism, pixel storage) are not part of the key.
+ */
+public class MapCache {
+    private final Path directory;
+
+    public MapCache(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    public Map getOrGenerate(Options settings) throws IOException {
+        Path file = file(settings);
+        if(Files.exists(file)) return MappedMapFile.open(file).toMap(settings);
+        Map map = new Map(settings);
+        map.getMap();
+        Path temporary = Files.createTempFile(directory, "map", ".tmp");
+        try {
+            MappedMapFile.write(map, temporary);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return map;
+    }
+
+    /**
+     * The cached file of these settings, open it with MappedMapFile to query it without loading it.
+     */
+    public Path file(Options settings) {
+        return directory.resolve(key(settings) + ".wmm");
+    }
+
+    public boolean contains(Options settings) {
+        return Files.exists(file(settings));
+    }
+
+    public String key(Options settings) {
+        StringBuilder description = new StringBuilder();
+        description.append(Map.GENERATOR_VERSION).append('|')
+                .append(settings.getSeed()).append('|')
+                .append(settings.getXSize()).append('|')
+                .append(settings.getYSize()).append('|')
+                .append(settings.getPolygons()).append('|')
+                .append(settings.getLakeCountModificator()).append('|')
+                .append(settings.getTotalLakeAreaLimitMultipler()).append('|')
+                .append(settings.getLakeSizeLimitModificator()).append('|')
+                .append(settings.getWaterLevelConstant()).append('|')
+                .append(settings.getLandmassMinPercentage()).append('|')
+                .append(settings.isTopWater()).append(settings.isBottomWater())
+                .append(settings.isLeftWater()).append(settings.isRightWater()).append('|')
+                .append(settings.getClimate()).append('|')
+                .append(settings.getMoistureClimateModificator()).append('|')
+                .append(settings.getRiverCountModificator()).append('|')
+                .append(settings.getCityModifier()).append('|')
+                .append(settings.getCityNames());
+        // settings added later only enter the key when changed from their default, so existing keys stay what they were
+        if(settings.getRelaxationIterations() > 0) description.append("|relaxation").append(settings.getRelaxationIterations());
+        if(settings.getSeedSampling() != SeedSampling.UniformRandom) description.append('|').append(settings.getSeedSampling());
+        if(settings.getRiverModel() != RiverModel.SourceTracing) description.append('|').append(settings.getRiverModel());
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(description.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for(byte b: hash) key.append(String.format("%02x", b));
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package MapGeneration.DataExport;
+
+import MapGeneration.Graph.Polygon;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonGraph;
+import MapGeneration.Graph.PolygonSpans;
+import MapGeneration.Map;
+import MapGeneration.VoronoiDiagram;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * Streams every polygon of a map as JSON through a JsonWriter, one polygon at a time, so memory use does
+ * not grow with the map. Only the selected fields are written. In GeoJSON mode every polygon becomes a
+ * Feature whose geometry is the outline of its pixels, in pixel coordinates with y growing downwards.
+ */
+public class MapJsonExporter {
+    private final EnumSet<ExportField> fields;
+    private boolean geoJson;
+    // corners of the outline being written, reused from polygon to polygon
+    private int[] ring = new int[256];
+    private int ringLength;
+
+    public MapJsonExporter()
+    {
+        this(EnumSet.allOf(ExportField.class));
+    }
+
+    public MapJsonExporter(EnumSet<ExportField> fields)
+    {
+        this.fields = EnumSet.copyOf(fields);
+    }
+
+    public void setGeoJson(boolean geoJson)
+    {
+        this.geoJson = geoJson;
+    }
+
+    public void write(Map map, OutputStream stream) throws IOException
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+        write(map, writer);
+        writer.flush();
+    }
+
+    public void write(Map map, Writer writer) throws IOException
+    {
+        JsonWriter json = new JsonWriter(writer);
+        VoronoiDiagram diagram = map.diagram;
+        json.beginObject();
+        if(geoJson) json.name("type").value("FeatureCollection");
+        json.name("width").value(diagram.xSize);
+        json.name("height").value(diagram.ySize);
+        json.name(geoJson ? "features" : "polygons");
+        json.beginArray();
+        for(Polygon polygon: diagram.polygons)
+        {
+            if(geoJson)
+            {
+                json.beginObject();
+                json.name("type").value("Feature");
+                json.name("id").value(polygon.index);
+                json.name("geometry");
+                writeOutline(json, diagram.getSpans(), polygon.index);
+                json.name("properties");
+                writePolygon(json, diagram, polygon);
+                json.endObject();
+            }
+            else writePolygon(json, diagram, polygon);
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private void writePolygon(JsonWriter json, VoronoiDiagram diagram, Polygon polygon) throws IOException
+    {
+        PolygonAttributes attributes = diagram.getAttributes();
+        int index = polygon.index;
+        json.beginObject();
+        json.name("index").value(index);
+        if(fields.contains(ExportField.Center))
+        {
+            json.name("center").beginArray().value(polygon.centerPoint.getX()).value(polygon.centerPoint.getY()).endArray();
+        }
+        if(fields.contains(ExportField.Neighbors))
+        {
+            PolygonGraph graph = diagram.getGraph();
+            json.name("neighbors").beginArray();
+            for(int k = graph.neighborStart(index); k < graph.neighborEnd(index); k++) json.value(graph.neighborAt(k));
+            json.endArray();
+        }
+        if(fields.contains(ExportField.Water)) writeName(json, "water", attributes.getWater(index));
+        if(fields.contains(ExportField.Elevation))
+        {
+            writeName(json, "elevation", attributes.getElevation(index));
+            json.name("height");
+            if(Float.isNaN(attributes.getHeight(index))) json.nullValue();
+            else json.value(attributes.getHeight(index));
+        }
+        if(fields.contains(ExportField.Moisture)) writeName(json, "moisture", attributes.getMoisture(index));
+        if(fields.contains(ExportField.Temperature)) writeName(json, "temperature", attributes.getTemperature(index));
+        if(fields.contains(ExportField.Biome))
+        {
+            json.name("biome");
+            if(attributes.getBiome(index) == null) json.nullValue();
+            else json.value(attributes.getBiome(index).getClass().getSimpleName());
+        }
+        if(fields.contains(ExportField.River)) json.name("river").value(attributes.isRiver(index));
+        if(fields.contains(ExportField.RiverDirection))
+        {
+            json.name("riverDirection");
+            if(attributes.getRiverDirection(index) < 0) json.nullValue();
+            else json.value(attributes.getRiverDirection(index));
+        }
+        if(fields.contains(ExportField.Drainage))
+        {
+            // both null unless the rivers were made from flow
+            json.name("flow");
+            if(attributes.getBasin(index) < 0) json.nullValue();
+            else json.value(attributes.getRiverFlow(index));
+            json.name("basin");
+            if(attributes.getBasin(index) < 0) json.nullValue();
+            else json.value(attributes.getBasin(index));
+        }
+        if(fields.contains(ExportField.City))
+        {
+            json.name("city");
+            if(attributes.getCity(index) == null) json.nullValue();
+            else json.value(attributes.getCity(index).toString());
+        }
+        if(fields.contains(ExportField.Distances))
+        {
+            json.name("distanceToOcean").value(attributes.getDistanceToOcean(index));
+            json.name("distanceToLake").value(attributes.getDistanceToLake(index));
+            json.name("distanceToRiver").value(attributes.getDistanceToRiver(index));
+            json.name("distanceToCity").value(attributes.getDistanceToCity(index));
+        }
+        if(fields.contains(ExportField.Area)) json.name("area").value(diagram.getSpans().getArea(index));
+        json.endObject();
+    }
+
+    private void writeName(JsonWriter json, String name, Enum<?> value) throws IOException
+    {
+        json.name(name);
+        if(value == null) json.nullValue();
+        else json.value(value.name());
+    }
+
+    /**
+     * Counterclockwise ring around the polygon's pixels: down the right ends of its rows, back up the left starts,
+     * without the corners that lie on a straight edge. Cells are convex, so every row holds one run; should a row
+     * hold several, its outer extent is used.
+     */
+    private void writeOutline(JsonWriter json, PolygonSpans spans, int polygon) throws IOException
+    {
+        int first = spans.spanStart(polygon), end = spans.spanEnd(polygon);
+        ringLength = 0;
+        for(int span = first; span < end; )
+        {
+            int row = spans.spanRow(span), xEnd = spans.spanXEnd(span);
+            for(; span < end && spans.spanRow(span) == row; span++) xEnd = Math.max(xEnd, spans.spanXEnd(span));
+            addCorner(xEnd, row);
+            addCorner(xEnd, row + 1);
+        }
+        for(int span = end - 1; span >= first; )
+        {
+            int row = spans.spanRow(span), xStart = spans.spanXStart(span);
+            for(; span >= first && spans.spanRow(span) == row; span--) xStart = Math.min(xStart, spans.spanXStart(span));
+            addCorner(xStart, row + 1);
+            addCorner(xStart, row);
+        }
+        json.beginObject();
+        json.name("type").value("Polygon");
+        json.name("coordinates").beginArray().beginArray();
+        int corners = ringLength / 2;
+        for(int corner = 0; corner < corners; corner++)
+        {
+            int previous = (corner + corners - 1) % corners, next = (corner + 1) % corners;
+            if(!isStraight(previous, corner, next)) writeCorner(json, corner);
+        }
+        // GeoJSON rings repeat their first position at the end
+        for(int corner = 0; corner < corners; corner++)
+        {
+            if(isStraight((corner + corners - 1) % corners, corner, (corner + 1) % corners)) continue;
+            writeCorner(json, corner);
+            break;
+        }
+        json.endArray().endArray();
+        json.endObject();
+    }
+
+    private void addCorner(int x, int y)
+    {
+        if(ringLength > 0 && ring[ringLength - 2] == x && ring[ringLength - 1] == y) return;
+        if(ringLength == ring.length) ring = Arrays.copyOf(ring, ring.length * 2);
+        ring[ringLength++] = x;
+        ring[ringLength++] = y;
+    }
+
+    private boolean isStraight(int previous, int corner, int next)
+    {
+        long ax = ring[2 * previous], ay = ring[2 * previous + 1];
+        long bx = ring[2 * corner], by = ring[2 * corner + 1];
+        long cx = ring[2 * next], cy = ring[2 * next + 1];
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax) == 0;
+    }
+
+    private void writeCorner(JsonWriter json, int corner) throws IOException
+    {
+        json.beginArray().value(ring[2 * corner]).value(ring[2 * corner + 1]).endArray();
+    }
+}
@@ -1,55 +1,44 @@
 package MapGeneration.DataExport;
 
-import MapGeneration.Graph.Point;
-import MapGeneration.Graph.PolygonProperties.Biomes.Biome;
-import MapGeneration.Graph.PolygonProperties.Biomes.Glacier;
-import MapGeneration.Graph.PolygonProperties.Moisture;
-import MapGeneration.Graph.PolygonProperties.Temperature;
-import MapGeneration.Graph.PolygonProperties.WaterType;
 import MapGeneration.VoronoiDiagram;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
 
 
 public class MapPrinter extends JPanel {
     private VoronoiDiagram diagram;
+    // rendered on the first paint and reused until the diagram is replaced
+    private BufferedImage image;
     public MapPrinter(VoronoiDiagram diagram)
     {
         this.diagram = diagram;
         repaint();
     }
+    /**
+     * Shows another diagram, or the same one after its attributes were changed, rendering it again on the next paint.
+     */
+    public void setDiagram(VoronoiDiagram diagram)
+    {
+        this.diagram = diagram;
+        image = null;
+        repaint();
+    }
+    public RasterRenderer getRenderer()
+    {
+        return new RasterRenderer(diagram);
+    }
+    public TilePyramid getTilePyramid()
+    {
+        return new TilePyramid(diagram);
+    }
     public void paint(Graphics g)
     {
         if(diagram != null)
         {
-            for(MapGeneration.Graph.Polygon polygon: diagram.polygons)
-            {
-                g.setColor(polygon.biome.getBiomeColor());
-
-                for(Point pixel:polygon.polygonPixels)
-                {
-                    g.drawRect(pixel.getX(),pixel.getY(),1,1);
-                }
-            }
-            for(MapGeneration.Graph.Polygon polygon: diagram.polygons)
-            {
-                g.setColor(Color.BLUE);
-                if(polygon.river == true && !(polygon.biome instanceof Glacier))
-                {
-                    g.drawLine(polygon.centerPoint.getX(),polygon.centerPoint.getY(),polygon.riverDirection.centerPoint.getX(),polygon.riverDirection.centerPoint.getY());
-                }
-                g.setColor(Color.BLACK);
-                if(polygon.city != null)
-                {
-                    Ellipse2D.Double circle = new Ellipse2D.Double(polygon.centerPoint.getX(), polygon.centerPoint.getY(), 6, 6);
-                    Graphics2D g2d = (Graphics2D)g;
-                    g2d.fill(circle);
-                    g2d.drawString(polygon.city.toString(),polygon.centerPoint.getX(), polygon.centerPoint.getY());
-                }
-            }
-
+            if(image == null) image = getRenderer().render();
+            g.drawImage(image, 0, 0, null);
         }
     }
 }
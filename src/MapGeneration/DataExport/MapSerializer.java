@@ -0,0 +1,114 @@
+package MapGeneration.DataExport;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.Graph.PixelOwnership;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonGraph;
+import MapGeneration.Graph.PolygonProperties.*;
+import MapGeneration.Map;
+import MapGeneration.VoronoiDiagram;
+
+import java.io.*;
+
+/**
+ * Writes a generated map (diagram, adjacency and every terrain column) to a stream and reads it back.
+ */
+public class MapSerializer {
+    private static final int MAGIC = 0x574D4150;
+    private static final int FORMAT_VERSION = 1;
+
+    public void write(Map map, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        VoronoiDiagram diagram = map.diagram;
+        PolygonAttributes attributes = diagram.getAttributes();
+        PolygonGraph graph = diagram.getGraph();
+        PixelOwnership ownership = diagram.getOwnership();
+        int polygonCount = diagram.polygons.size();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(diagram.xSize);
+        out.writeInt(diagram.ySize);
+        out.writeInt(polygonCount);
+        for(int i = 0; i < polygonCount; i++)
+        {
+            out.writeInt(diagram.polygons.get(i).centerPoint.getX());
+            out.writeInt(diagram.polygons.get(i).centerPoint.getY());
+        }
+        for(int i = 0; i < ownership.size(); i++) out.writeInt(ownership.get(i));
+        out.writeInt(graph.edgeCount() * 2);
+        for(int i = 0; i < polygonCount; i++)
+        {
+            out.writeInt(graph.degree(i));
+            for(int k = graph.neighborStart(i); k < graph.neighborEnd(i); k++) out.writeInt(graph.neighborAt(k));
+        }
+        for(int i = 0; i < polygonCount; i++)
+        {
+            out.writeByte(attributes.getWaterOrdinal(i));
+            out.writeByte(attributes.getElevationOrdinal(i));
+            out.writeByte(attributes.getMoistureOrdinal(i));
+            out.writeByte(attributes.getTemperatureOrdinal(i));
+            out.writeByte(attributes.getBiomeId(i));
+            out.writeBoolean(attributes.isRiver(i));
+            out.writeInt(attributes.getDistanceToOcean(i));
+            out.writeInt(attributes.getDistanceToLake(i));
+            out.writeInt(attributes.getDistanceToRiver(i));
+            out.writeInt(attributes.getDistanceToCity(i));
+            out.writeInt(attributes.getRiverDirection(i));
+            out.writeInt(attributes.getRiverFlow(i));
+            out.writeInt(attributes.getBasin(i));
+            out.writeFloat(attributes.getHeight(i));
+            City city = attributes.getCity(i);
+            out.writeBoolean(city != null);
+            if(city != null) out.writeUTF(city.toString());
+        }
+        out.flush();
+    }
+
+    public Map read(Options settings, InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if(in.readInt() != MAGIC) throw new IOException("Not a serialized map");
+        int version = in.readInt();
+        if(version != FORMAT_VERSION) throw new IOException("Unsupported map format version " + version);
+        int xSize = in.readInt(), ySize = in.readInt(), polygonCount = in.readInt();
+        int[] xs = new int[polygonCount], ys = new int[polygonCount];
+        for(int i = 0; i < polygonCount; i++)
+        {
+            xs[i] = in.readInt();
+            ys[i] = in.readInt();
+        }
+        PixelOwnership ownership = new PixelOwnership(xSize, ySize, polygonCount);
+        for(int i = 0; i < ownership.size(); i++) ownership.set(i, in.readInt());
+        int[] offsets = new int[polygonCount + 1];
+        int[] neighbors = new int[in.readInt()];
+        for(int i = 0; i < polygonCount; i++)
+        {
+            offsets[i + 1] = offsets[i] + in.readInt();
+            for(int k = offsets[i]; k < offsets[i + 1]; k++) neighbors[k] = in.readInt();
+        }
+        VoronoiDiagram diagram = VoronoiDiagram.restore(xs, ys, ownership, new PolygonGraph(offsets, neighbors), settings.getPixelStorage());
+        PolygonAttributes attributes = diagram.getAttributes();
+        WaterType[] waterTypes = WaterType.values();
+        Moisture[] moistures = Moisture.values();
+        Temperature[] temperatures = Temperature.values();
+        for(int i = 0; i < polygonCount; i++)
+        {
+            byte water = in.readByte(), elevation = in.readByte(), moisture = in.readByte(), temperature = in.readByte();
+            attributes.setWater(i, water < 0 ? null : waterTypes[water]);
+            attributes.setElevation(i, Elevation.values()[elevation]);
+            attributes.setMoisture(i, moisture < 0 ? null : moistures[moisture]);
+            attributes.setTemperature(i, temperature < 0 ? null : temperatures[temperature]);
+            attributes.setBiomeId(i, in.readByte());
+            attributes.setRiver(i, in.readBoolean());
+            attributes.setDistanceToOcean(i, in.readInt());
+            attributes.setDistanceToLake(i, in.readInt());
+            attributes.setDistanceToRiver(i, in.readInt());
+            attributes.setDistanceToCity(i, in.readInt());
+            attributes.setRiverDirection(i, in.readInt());
+            attributes.setRiverFlow(i, in.readInt());
+            attributes.setBasin(i, in.readInt());
+            attributes.setHeight(i, in.readFloat());
+            if(in.readBoolean()) attributes.setCity(i, new City(in.readUTF()));
+        }
+        return Map.fromGeneratedDiagram(settings, diagram);
+    }
+}
@@ -0,0 +1,434 @@
+package MapGeneration.DataExport;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.Graph.PixelOwnership;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonGraph;
+import MapGeneration.Graph.PolygonProperties.*;
+import MapGeneration.Map;
+import MapGeneration.VoronoiDiagram;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary map file laid out as fixed-width little-endian columns, written through a FileChannel
+ * and opened with FileChannel.map. Opening only maps the sections, so single pixels, polygons and
+ * neighbour lists can be queried straight from the page cache; toMap() copies everything into a heap Map.
+ * The ownership grid is mapped in segments of at most 1 GiB, so files larger than 2 GiB work.
+ *
+ * Layout: a 128 byte header with the sizes and section offsets, then the sections, each 8 byte aligned:
+ * center x and y ints, ownership (unsigned shorts up to 65536 polygons, ints otherwise), CSR offsets and
+ * neighbours, one byte column per water, elevation, moisture, temperature, biome and river flag (-1 unset),
+ * int columns for the four distances, the river direction, river flow, basin and the float height, and the
+ * cities as (polygon, UTF-8 name) pairs.
+ */
+public class MappedMapFile {
+    public static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x574D4D46;
+    private static final int HEADER_SIZE = 128;
+    private static final long OWNERSHIP_SEGMENT_BYTES = 1L << 30;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private static final int BYTE_COLUMNS = 6;
+    private static final int WATER = 0, ELEVATION = 1, MOISTURE = 2, TEMPERATURE = 3, BIOME = 4, RIVER = 5;
+    private static final int INT_COLUMNS = 8;
+    private static final int DISTANCE_TO_OCEAN = 0, DISTANCE_TO_LAKE = 1, DISTANCE_TO_RIVER = 2, DISTANCE_TO_CITY = 3, RIVER_DIRECTION = 4,
+            RIVER_FLOW = 5, BASIN = 6, HEIGHT = 7;
+
+    private final int xSize;
+    private final int ySize;
+    private final int polygonCount;
+    private final int ownerBytes;
+    private final long ownershipSegmentPixels;
+    private final ByteBuffer centers;
+    private final ByteBuffer[] ownershipSegments;
+    private final ByteBuffer offsets;
+    private final ByteBuffer neighbors;
+    private final ByteBuffer byteColumns;
+    private final ByteBuffer intColumns;
+    private final City[] cities;
+
+    private MappedMapFile(FileChannel channel) throws IOException
+    {
+        ByteBuffer header = map(channel, 0, HEADER_SIZE);
+        if(header.getInt(0) != MAGIC) throw new IOException("Not a mapped map file");
+        int version = header.getInt(4);
+        if(version != FORMAT_VERSION) throw new IOException("Unsupported mapped map version " + version);
+        xSize = header.getInt(8);
+        ySize = header.getInt(12);
+        polygonCount = header.getInt(16);
+        ownerBytes = header.getInt(20);
+        int neighborCount = header.getInt(24);
+        int cityCount = header.getInt(28);
+        long[] sections = new long[7];
+        for(int i = 0; i < sections.length; i++) sections[i] = header.getLong(32 + 8 * i);
+        centers = map(channel, sections[0], 8L * polygonCount);
+        long pixels = (long) xSize * ySize;
+        ownershipSegmentPixels = OWNERSHIP_SEGMENT_BYTES / ownerBytes;
+        ownershipSegments = new ByteBuffer[(int) ((pixels + ownershipSegmentPixels - 1) / ownershipSegmentPixels)];
+        for(int segment = 0; segment < ownershipSegments.length; segment++)
+        {
+            long first = segment * ownershipSegmentPixels;
+            ownershipSegments[segment] = map(channel, sections[1] + first * ownerBytes, Math.min(ownershipSegmentPixels, pixels - first) * ownerBytes);
+        }
+        offsets = map(channel, sections[2], 4L * (polygonCount + 1));
+        neighbors = map(channel, sections[3], 4L * neighborCount);
+        byteColumns = map(channel, sections[4], (long) BYTE_COLUMNS * polygonCount);
+        intColumns = map(channel, sections[5], 4L * INT_COLUMNS * polygonCount);
+        ByteBuffer cityData = map(channel, sections[6], channel.size() - sections[6]);
+        cities = new City[polygonCount];
+        for(int i = 0; i < cityCount; i++)
+        {
+            int polygon = cityData.getInt();
+            byte[] name = new byte[cityData.getInt()];
+            cityData.get(name);
+            cities[polygon] = new City(new String(name, StandardCharsets.UTF_8));
+        }
+    }
+
+    public static MappedMapFile open(Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedMapFile(channel);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException
+    {
+        if(size > Integer.MAX_VALUE) throw new IOException("Section of " + size + " bytes is too large to map");
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    public static void write(Map map, Path file) throws IOException
+    {
+        VoronoiDiagram diagram = map.diagram;
+        PixelOwnership ownership = diagram.getOwnership();
+        PolygonGraph graph = diagram.getGraph();
+        PolygonAttributes attributes = diagram.getAttributes();
+        int polygonCount = attributes.size();
+        int ownerBytes = polygonCount <= 1 << 16 ? 2 : 4;
+        int neighborCount = graph.edgeCount() * 2;
+        int cityCount = 0;
+        for(int polygon = 0; polygon < polygonCount; polygon++)
+            if(attributes.getCity(polygon) != null) cityCount++;
+        long[] sections = new long[7];
+        long[] sizes = {8L * polygonCount, (long) ownership.getXSize() * ownership.getYSize() * ownerBytes, 4L * (polygonCount + 1),
+                4L * neighborCount, (long) BYTE_COLUMNS * polygonCount, 4L * INT_COLUMNS * polygonCount};
+        long position = HEADER_SIZE;
+        for(int i = 0; i < sizes.length; i++)
+        {
+            sections[i] = position;
+            position = align(position + sizes[i]);
+        }
+        sections[6] = position;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ColumnWriter out = new ColumnWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(ownership.getXSize());
+            out.putInt(ownership.getYSize());
+            out.putInt(polygonCount);
+            out.putInt(ownerBytes);
+            out.putInt(neighborCount);
+            out.putInt(cityCount);
+            for(long section: sections) out.putLong(section);
+            out.padTo(sections[0]);
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(diagram.polygons.get(polygon).centerPoint.getX());
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(diagram.polygons.get(polygon).centerPoint.getY());
+            out.padTo(sections[1]);
+            for(int pixel = 0; pixel < ownership.size(); pixel++)
+            {
+                if(ownerBytes == 2) out.putShort((short) ownership.get(pixel));
+                else out.putInt(ownership.get(pixel));
+            }
+            out.padTo(sections[2]);
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(graph.neighborStart(polygon));
+            out.putInt(neighborCount);
+            out.padTo(sections[3]);
+            for(int k = 0; k < neighborCount; k++) out.putInt(graph.neighborAt(k));
+            out.padTo(sections[4]);
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putByte(attributes.getWaterOrdinal(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putByte(attributes.getElevationOrdinal(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putByte(attributes.getMoistureOrdinal(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putByte(attributes.getTemperatureOrdinal(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putByte(attributes.getBiomeId(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putByte(attributes.isRiver(polygon) ? 1 : 0);
+            out.padTo(sections[5]);
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(attributes.getDistanceToOcean(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(attributes.getDistanceToLake(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(attributes.getDistanceToRiver(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(attributes.getDistanceToCity(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(attributes.getRiverDirection(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(attributes.getRiverFlow(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(attributes.getBasin(polygon));
+            for(int polygon = 0; polygon < polygonCount; polygon++) out.putInt(Float.floatToRawIntBits(attributes.getHeight(polygon)));
+            out.padTo(sections[6]);
+            for(int polygon = 0; polygon < polygonCount; polygon++)
+            {
+                City city = attributes.getCity(polygon);
+                if(city == null) continue;
+                byte[] name = city.toString().getBytes(StandardCharsets.UTF_8);
+                out.putInt(polygon);
+                out.putInt(name.length);
+                for(byte b: name) out.putByte(b);
+            }
+            out.flush();
+        }
+    }
+
+    private static long align(long position)
+    {
+        return (position + 7) & ~7L;
+    }
+
+    public int getXSize()
+    {
+        return xSize;
+    }
+
+    public int getYSize()
+    {
+        return ySize;
+    }
+
+    public int getPolygonCount()
+    {
+        return polygonCount;
+    }
+
+    public int getOwner(int x, int y)
+    {
+        long pixel = (long) y * xSize + x;
+        ByteBuffer segment = ownershipSegments[(int) (pixel / ownershipSegmentPixels)];
+        int position = (int) (pixel % ownershipSegmentPixels) * ownerBytes;
+        return ownerBytes == 2 ? segment.getShort(position) & 0xFFFF : segment.getInt(position);
+    }
+
+    public int getCenterX(int polygon)
+    {
+        return centers.getInt(4 * polygon);
+    }
+
+    public int getCenterY(int polygon)
+    {
+        return centers.getInt(4 * (polygonCount + polygon));
+    }
+
+    public int neighborStart(int polygon)
+    {
+        return offsets.getInt(4 * polygon);
+    }
+
+    public int neighborEnd(int polygon)
+    {
+        return offsets.getInt(4 * (polygon + 1));
+    }
+
+    public int neighborAt(int position)
+    {
+        return neighbors.getInt(4 * position);
+    }
+
+    public int getWaterOrdinal(int polygon)
+    {
+        return byteColumn(WATER, polygon);
+    }
+
+    public int getElevationOrdinal(int polygon)
+    {
+        return byteColumn(ELEVATION, polygon);
+    }
+
+    public int getMoistureOrdinal(int polygon)
+    {
+        return byteColumn(MOISTURE, polygon);
+    }
+
+    public int getTemperatureOrdinal(int polygon)
+    {
+        return byteColumn(TEMPERATURE, polygon);
+    }
+
+    public int getBiomeId(int polygon)
+    {
+        return byteColumn(BIOME, polygon);
+    }
+
+    public boolean isRiver(int polygon)
+    {
+        return byteColumn(RIVER, polygon) != 0;
+    }
+
+    public int getDistanceToOcean(int polygon)
+    {
+        return intColumn(DISTANCE_TO_OCEAN, polygon);
+    }
+
+    public int getDistanceToLake(int polygon)
+    {
+        return intColumn(DISTANCE_TO_LAKE, polygon);
+    }
+
+    public int getDistanceToRiver(int polygon)
+    {
+        return intColumn(DISTANCE_TO_RIVER, polygon);
+    }
+
+    public int getDistanceToCity(int polygon)
+    {
+        return intColumn(DISTANCE_TO_CITY, polygon);
+    }
+
+    /**
+     * -1 for outlets.
+     */
+    public int getRiverDirection(int polygon)
+    {
+        return intColumn(RIVER_DIRECTION, polygon);
+    }
+
+    public int getRiverFlow(int polygon)
+    {
+        return intColumn(RIVER_FLOW, polygon);
+    }
+
+    public int getBasin(int polygon)
+    {
+        return intColumn(BASIN, polygon);
+    }
+
+    public float getHeight(int polygon)
+    {
+        return Float.intBitsToFloat(intColumn(HEIGHT, polygon));
+    }
+
+    public City getCity(int polygon)
+    {
+        return cities[polygon];
+    }
+
+    private int byteColumn(int column, int polygon)
+    {
+        return byteColumns.get(column * polygonCount + polygon);
+    }
+
+    private int intColumn(int column, int polygon)
+    {
+        return intColumns.getInt(4 * (column * polygonCount + polygon));
+    }
+
+    /**
+     * Copies the whole file into a heap Map that is marked generated.
+     */
+    public Map toMap(Options settings)
+    {
+        int[] xs = new int[polygonCount], ys = new int[polygonCount];
+        for(int polygon = 0; polygon < polygonCount; polygon++)
+        {
+            xs[polygon] = getCenterX(polygon);
+            ys[polygon] = getCenterY(polygon);
+        }
+        PixelOwnership ownership = new PixelOwnership(xSize, ySize, polygonCount);
+        int pixel = 0;
+        for(ByteBuffer segment: ownershipSegments)
+        {
+            int segmentPixels = segment.capacity() / ownerBytes;
+            for(int i = 0; i < segmentPixels; i++)
+                ownership.set(pixel++, ownerBytes == 2 ? segment.getShort(2 * i) & 0xFFFF : segment.getInt(4 * i));
+        }
+        int[] graphOffsets = new int[polygonCount + 1];
+        for(int polygon = 0; polygon <= polygonCount; polygon++) graphOffsets[polygon] = offsets.getInt(4 * polygon);
+        int[] graphNeighbors = new int[graphOffsets[polygonCount]];
+        for(int k = 0; k < graphNeighbors.length; k++) graphNeighbors[k] = neighborAt(k);
+        VoronoiDiagram diagram = VoronoiDiagram.restore(xs, ys, ownership, new PolygonGraph(graphOffsets, graphNeighbors), settings.getPixelStorage());
+        PolygonAttributes attributes = diagram.getAttributes();
+        WaterType[] waterTypes = WaterType.values();
+        Elevation[] elevations = Elevation.values();
+        Moisture[] moistures = Moisture.values();
+        Temperature[] temperatures = Temperature.values();
+        for(int polygon = 0; polygon < polygonCount; polygon++)
+        {
+            int water = getWaterOrdinal(polygon), moisture = getMoistureOrdinal(polygon), temperature = getTemperatureOrdinal(polygon);
+            attributes.setWater(polygon, water < 0 ? null : waterTypes[water]);
+            attributes.setElevation(polygon, elevations[getElevationOrdinal(polygon)]);
+            attributes.setMoisture(polygon, moisture < 0 ? null : moistures[moisture]);
+            attributes.setTemperature(polygon, temperature < 0 ? null : temperatures[temperature]);
+            attributes.setBiomeId(polygon, getBiomeId(polygon));
+            attributes.setRiver(polygon, isRiver(polygon));
+            attributes.setDistanceToOcean(polygon, getDistanceToOcean(polygon));
+            attributes.setDistanceToLake(polygon, getDistanceToLake(polygon));
+            attributes.setDistanceToRiver(polygon, getDistanceToRiver(polygon));
+            attributes.setDistanceToCity(polygon, getDistanceToCity(polygon));
+            attributes.setRiverDirection(polygon, getRiverDirection(polygon));
+            attributes.setRiverFlow(polygon, getRiverFlow(polygon));
+            attributes.setBasin(polygon, getBasin(polygon));
+            attributes.setHeight(polygon, getHeight(polygon));
+            attributes.setCity(polygon, cities[polygon]);
+        }
+        return Map.fromGeneratedDiagram(settings, diagram);
+    }
+
+    /**
+     * Sequential little-endian writer over a direct buffer that is drained into the channel when full.
+     */
+    private static class ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        ColumnWriter(FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        void putByte(int value) throws IOException
+        {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void putShort(short value) throws IOException
+        {
+            ensure(2);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException
+        {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException
+        {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void padTo(long target) throws IOException
+        {
+            while(position + buffer.position() < target) putByte(0);
+        }
+
+        private void ensure(int bytes) throws IOException
+        {
+            if(buffer.remaining() < bytes) flush();
+        }
+
+        void flush() throws IOException
+        {
+            buffer.flip();
+            while(buffer.hasRemaining()) position += channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
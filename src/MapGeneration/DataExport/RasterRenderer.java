@@ -0,0 +1,184 @@
+package MapGeneration.DataExport;
+
+import MapGeneration.Graph.PixelOwnership;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonProperties.BiomeChoser;
+import MapGeneration.Graph.PolygonProperties.Biomes.Glacier;
+import MapGeneration.VoronoiDiagram;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Headless renderer that writes ARGB values straight into a BufferedImage's int[] buffer.
+ * The first pass maps the ownership grid through a per-polygon color table, the second draws
+ * rivers and city markers. Only city names go through Graphics2D, and they can be switched off.
+ */
+public class RasterRenderer {
+    private static final int RIVER_COLOR = Color.BLUE.getRGB();
+    private static final int CITY_COLOR = Color.BLACK.getRGB();
+    private static final int UNSET_COLOR = Color.BLACK.getRGB();
+    private static final int CITY_MARK_SIZE = 6;
+    private static final int MAX_RIVER_WIDTH = 4;
+
+    private final VoronoiDiagram diagram;
+    private boolean drawCityNames = true;
+
+    public RasterRenderer(VoronoiDiagram diagram)
+    {
+        this.diagram = diagram;
+    }
+
+    public void setDrawCityNames(boolean drawCityNames)
+    {
+        this.drawCityNames = drawCityNames;
+    }
+
+    public BufferedImage render()
+    {
+        BufferedImage image = new BufferedImage(diagram.xSize, diagram.ySize, BufferedImage.TYPE_INT_ARGB);
+        render(image);
+        return image;
+    }
+
+    /**
+     * Renders into an existing TYPE_INT_ARGB or TYPE_INT_RGB image of the diagram's size, so the buffer can be reused.
+     */
+    public void render(BufferedImage image)
+    {
+        if(image.getWidth() != diagram.xSize || image.getHeight() != diagram.ySize)
+            throw new IllegalArgumentException("Image is " + image.getWidth() + "x" + image.getHeight() + ", map is " + diagram.xSize + "x" + diagram.ySize);
+        if(image.getType() != BufferedImage.TYPE_INT_ARGB && image.getType() != BufferedImage.TYPE_INT_RGB)
+            throw new IllegalArgumentException("Only TYPE_INT_ARGB and TYPE_INT_RGB images can be rendered into");
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int stride = ((SinglePixelPackedSampleModel) image.getSampleModel()).getScanlineStride();
+        fillPolygons(pixels, stride);
+        drawRivers(pixels, stride);
+        drawCities(pixels, stride, image);
+    }
+
+    public void writePng(OutputStream stream) throws IOException
+    {
+        if(!ImageIO.write(render(), "png", stream)) throw new IOException("No PNG writer available");
+    }
+
+    private int[] polygonColors()
+    {
+        int[] biomeColors = new int[BiomeChoser.getBiomeCount()];
+        for(int biome = 0; biome < biomeColors.length; biome++)
+            biomeColors[biome] = BiomeChoser.getBiomeById(biome).getBiomeColor().getRGB();
+        PolygonAttributes attributes = diagram.getAttributes();
+        int[] colors = new int[attributes.size()];
+        for(int polygon = 0; polygon < colors.length; polygon++)
+        {
+            int biome = attributes.getBiomeId(polygon);
+            colors[polygon] = biome < 0 ? UNSET_COLOR : biomeColors[biome];
+        }
+        return colors;
+    }
+
+    private void fillPolygons(int[] pixels, int stride)
+    {
+        int[] colors = polygonColors();
+        PixelOwnership ownership = diagram.getOwnership();
+        int xSize = diagram.xSize;
+        for(int y = 0, source = 0; y < diagram.ySize; y++)
+        {
+            int target = y * stride;
+            for(int x = 0; x < xSize; x++) pixels[target++] = colors[ownership.get(source++)];
+        }
+    }
+
+    // rivers made from flow widen by a pixel every time their flow doubles over the smallest river's
+    private void drawRivers(int[] pixels, int stride)
+    {
+        PolygonAttributes attributes = diagram.getAttributes();
+        int sourceFlow = Integer.MAX_VALUE;
+        for(int polygon = 0; polygon < attributes.size(); polygon++)
+            if(attributes.isRiver(polygon) && attributes.getRiverFlow(polygon) > 0) sourceFlow = Math.min(sourceFlow, attributes.getRiverFlow(polygon));
+        for(int polygon = 0; polygon < attributes.size(); polygon++)
+        {
+            int direction = attributes.getRiverDirection(polygon);
+            if(!attributes.isRiver(polygon) || direction < 0 || attributes.getBiome(polygon) instanceof Glacier) continue;
+            int flow = attributes.getRiverFlow(polygon);
+            int width = flow > 0 ? Math.min(MAX_RIVER_WIDTH, 32 - Integer.numberOfLeadingZeros(flow / sourceFlow)) : 1;
+            drawLine(pixels, stride,
+                    diagram.polygons.get(polygon).centerPoint.getX(), diagram.polygons.get(polygon).centerPoint.getY(),
+                    diagram.polygons.get(direction).centerPoint.getX(), diagram.polygons.get(direction).centerPoint.getY(),
+                    width, RIVER_COLOR);
+        }
+    }
+
+    private void drawCities(int[] pixels, int stride, BufferedImage image)
+    {
+        PolygonAttributes attributes = diagram.getAttributes();
+        Graphics2D graphics = null;
+        try {
+            for(int polygon = 0; polygon < attributes.size(); polygon++)
+            {
+                if(attributes.getCity(polygon) == null) continue;
+                int x = diagram.polygons.get(polygon).centerPoint.getX(), y = diagram.polygons.get(polygon).centerPoint.getY();
+                fillCircle(pixels, stride, x, y, CITY_MARK_SIZE, CITY_COLOR);
+                if(!drawCityNames) continue;
+                if(graphics == null)
+                {
+                    graphics = image.createGraphics();
+                    graphics.setColor(Color.BLACK);
+                }
+                graphics.drawString(attributes.getCity(polygon).toString(), x, y);
+            }
+        } finally {
+            if(graphics != null) graphics.dispose();
+        }
+    }
+
+    // Bresenham, both end points included like Graphics.drawLine; wider lines stamp a width x width square per step
+    private void drawLine(int[] pixels, int stride, int x0, int y0, int x1, int y1, int width, int color)
+    {
+        int dx = Math.abs(x1 - x0), dy = -Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1, sy = y0 < y1 ? 1 : -1;
+        int error = dx + dy;
+        while(true)
+        {
+            for(int y = y0 - (width - 1) / 2; y <= y0 + width / 2; y++)
+                for(int x = x0 - (width - 1) / 2; x <= x0 + width / 2; x++) setPixel(pixels, stride, x, y, color);
+            if(x0 == x1 && y0 == y1) break;
+            int doubled = 2 * error;
+            if(doubled >= dy)
+            {
+                error += dy;
+                x0 += sx;
+            }
+            if(doubled <= dx)
+            {
+                error += dx;
+                y0 += sy;
+            }
+        }
+    }
+
+    // disc inscribed in the size x size box whose top left corner is (left, top), like Ellipse2D
+    private void fillCircle(int[] pixels, int stride, int left, int top, int size, int color)
+    {
+        double radius = size / 2.0, centerX = left + radius, centerY = top + radius;
+        for(int y = top; y < top + size; y++)
+        {
+            for(int x = left; x < left + size; x++)
+            {
+                double dx = x + 0.5 - centerX, dy = y + 0.5 - centerY;
+                if(dx * dx + dy * dy <= radius * radius) setPixel(pixels, stride, x, y, color);
+            }
+        }
+    }
+
+    private void setPixel(int[] pixels, int stride, int x, int y, int color)
+    {
+        if(x < 0 || y < 0 || x >= diagram.xSize || y >= diagram.ySize) return;
+        pixels[y * stride + x] = color;
+    }
+}
@@ -0,0 +1,217 @@
+package MapGeneration.DataExport;
+
+import MapGeneration.Graph.PixelOwnership;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonProperties.BiomeChoser;
+import MapGeneration.VoronoiDiagram;
+import MapGeneration.WorkerPools;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Biome tiles of 256x256 pixels for zoomable viewers, numbered like web map tiles: zoom 0 fits the whole map
+ * in one tile and every zoom doubles the resolution up to the map's own at getMaxZoom(). Each level is reduced
+ * from the one below by taking the majority biome of every 2x2 block, ties going to the block's first pixel
+ * in row order. The full resolution level is read straight from the ownership grid one band of tiles at a time,
+ * coarser levels keep one byte per pixel and only the level being written and the one being built stay in memory.
+ * Tiles are handed out as soon as their band is done; pixels outside the map and polygons without a biome are
+ * transparent. Rivers and cities are not drawn.
+ */
+public class TilePyramid {
+    public static final int TILE_SIZE = 256;
+    private static final byte NO_BIOME = -1;
+
+    public interface TileSink {
+        /**
+         * Called from worker threads when parallelism is above 1. The image is not touched after the call returns.
+         */
+        void accept(int zoom, int tileX, int tileY, BufferedImage tile) throws IOException;
+    }
+
+    private final VoronoiDiagram diagram;
+    private int parallelism = 1;
+
+    public TilePyramid(VoronoiDiagram diagram)
+    {
+        this.diagram = diagram;
+    }
+
+    public void setParallelism(int parallelism)
+    {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getMaxZoom()
+    {
+        int zoom = 0;
+        for(long span = TILE_SIZE; span < Math.max(diagram.xSize, diagram.ySize); span *= 2) zoom++;
+        return zoom;
+    }
+
+    /**
+     * Writes every tile as PNG to directory/zoom/x/y.png.
+     */
+    public void writePng(Path directory) throws IOException
+    {
+        write((zoom, tileX, tileY, tile) -> {
+            Path column = directory.resolve(Integer.toString(zoom)).resolve(Integer.toString(tileX));
+            Files.createDirectories(column);
+            if(!ImageIO.write(tile, "png", column.resolve(tileY + ".png").toFile())) throw new IOException("No PNG writer available");
+        });
+    }
+
+    /**
+     * Builds the levels from the map's resolution down to zoom 0.
+     */
+    public void write(TileSink sink) throws IOException
+    {
+        int[] colors = biomeColors();
+        byte[] polygonBiomes = polygonBiomes();
+        ForkJoinPool pool = WorkerPools.forParallelism(parallelism);
+        int width = diagram.xSize, height = diagram.ySize;
+        byte[] level = null;
+        for(int zoom = getMaxZoom(); zoom >= 0; zoom--)
+        {
+            int nextWidth = (width + 1) / 2, nextHeight = (height + 1) / 2;
+            byte[] next = zoom > 0 ? new byte[nextWidth * nextHeight] : null;
+            // the full resolution level is copied out of the ownership grid band by band instead of being kept whole
+            boolean fullResolution = level == null;
+            byte[] band = fullResolution ? new byte[TILE_SIZE * width] : null;
+            for(int tileY = 0; tileY * TILE_SIZE < height; tileY++)
+            {
+                Level source = fullResolution
+                        ? new Level(band, width, height, tileY * TILE_SIZE)
+                        : new Level(level, width, height, 0);
+                int bandY = tileY, bandZoom = zoom, levelWidth = nextWidth, levelHeight = nextHeight;
+                byte[] target = next;
+                forEachTile(pool, (width + TILE_SIZE - 1) / TILE_SIZE, tileX -> {
+                    if(fullResolution) source.copyFrom(diagram.getOwnership(), polygonBiomes, tileX);
+                    if(target != null) source.reduce(tileX, bandY, target, levelWidth, levelHeight);
+                    try {
+                        sink.accept(bandZoom, tileX, bandY, source.render(tileX, bandY, colors));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            level = next;
+            width = nextWidth;
+            height = nextHeight;
+        }
+    }
+
+    private void forEachTile(ForkJoinPool pool, int tileCount, IntConsumer task) throws IOException
+    {
+        try {
+            if(pool == null || tileCount == 1) IntStream.range(0, tileCount).forEach(task);
+            else pool.submit(() -> IntStream.range(0, tileCount).parallel().forEach(task)).get();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tile pyramid interrupted", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            throw new IllegalStateException("Tile pyramid failed", e.getCause());
+        }
+    }
+
+    private int[] biomeColors()
+    {
+        int[] colors = new int[BiomeChoser.getBiomeCount()];
+        for(int biome = 0; biome < colors.length; biome++)
+            colors[biome] = BiomeChoser.getBiomeById(biome).getBiomeColor().getRGB();
+        return colors;
+    }
+
+    private byte[] polygonBiomes()
+    {
+        PolygonAttributes attributes = diagram.getAttributes();
+        byte[] biomes = new byte[attributes.size()];
+        for(int polygon = 0; polygon < biomes.length; polygon++) biomes[polygon] = (byte) attributes.getBiomeId(polygon);
+        return biomes;
+    }
+
+    /**
+     * Biome ids of one level, either the whole level or a band of tile rows starting at firstRow.
+     */
+    private static class Level {
+        private final byte[] biomes;
+        private final int width;
+        private final int height;
+        private final int firstRow;
+
+        Level(byte[] biomes, int width, int height, int firstRow)
+        {
+            this.biomes = biomes;
+            this.width = width;
+            this.height = height;
+            this.firstRow = firstRow;
+        }
+
+        void copyFrom(PixelOwnership ownership, byte[] polygonBiomes, int tileX)
+        {
+            int left = tileX * TILE_SIZE, right = Math.min(width, left + TILE_SIZE);
+            int bottom = Math.min(height, firstRow + TILE_SIZE);
+            for(int y = firstRow; y < bottom; y++)
+            {
+                int source = y * width, target = (y - firstRow) * width;
+                for(int x = left; x < right; x++) biomes[target + x] = polygonBiomes[ownership.get(source + x)];
+            }
+        }
+
+        byte get(int x, int y)
+        {
+            return x < width && y < height ? biomes[(y - firstRow) * width + x] : NO_BIOME;
+        }
+
+        // tile edges are even, so the blocks of one tile fill a block of the next level no other tile writes to
+        void reduce(int tileX, int tileY, byte[] next, int nextWidth, int nextHeight)
+        {
+            int left = tileX * TILE_SIZE / 2, top = tileY * TILE_SIZE / 2;
+            int right = Math.min(nextWidth, left + TILE_SIZE / 2), bottom = Math.min(nextHeight, top + TILE_SIZE / 2);
+            for(int y = top; y < bottom; y++)
+            {
+                for(int x = left; x < right; x++)
+                    next[y * nextWidth + x] = majority(get(2 * x, 2 * y), get(2 * x + 1, 2 * y), get(2 * x, 2 * y + 1), get(2 * x + 1, 2 * y + 1));
+            }
+        }
+
+        BufferedImage render(int tileX, int tileY, int[] colors)
+        {
+            BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            int[] pixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+            int left = tileX * TILE_SIZE, top = tileY * TILE_SIZE;
+            int columns = Math.min(TILE_SIZE, width - left), rows = Math.min(TILE_SIZE, height - top);
+            for(int y = 0; y < rows; y++)
+            {
+                int source = (top + y - firstRow) * width + left;
+                for(int x = 0; x < columns; x++)
+                {
+                    int biome = biomes[source + x];
+                    if(biome >= 0) pixels[y * TILE_SIZE + x] = colors[biome];
+                }
+            }
+            return tile;
+        }
+    }
+
+    // an id seen twice cannot be outvoted by a later one, so the first such id wins; otherwise every id is seen once
+    private static byte majority(byte a, byte b, byte c, byte d)
+    {
+        if(a != NO_BIOME && (a == b || a == c || a == d)) return a;
+        if(b != NO_BIOME && (b == c || b == d)) return b;
+        if(c != NO_BIOME && c == d) return c;
+        return a != NO_BIOME ? a : b != NO_BIOME ? b : c != NO_BIOME ? c : d;
+    }
+}
@@ -0,0 +1,379 @@
+package MapGeneration.DiagramGeneration;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Guibas-Stolfi divide and conquer Delaunay triangulation over integer sites.
+ * Sites must be sorted by x, then y, without duplicates (the order VoronoiDiagram generates them in).
+ * Predicates are evaluated exactly, so cocircular and collinear pixel coordinates are handled.
+ */
+public class DelaunayTriangulation implements SeedLocator {
+    private static final int EXACT_LONG_LIMIT = 1 << 14;
+
+    private final int[] xs;
+    private final int[] ys;
+    private final boolean longArithmetic;
+
+    private int[] onext;
+    private int[] org;
+    private boolean[] deleted;
+    private int edgeCount;
+
+    private int[] neighborOffsets;
+    private int[] neighbors;
+
+    public DelaunayTriangulation(int[] xs, int[] ys)
+    {
+        this.xs = xs;
+        this.ys = ys;
+        int max = 0;
+        for(int i = 0; i < xs.length; i++)
+            max = Math.max(max, Math.max(Math.abs(xs[i]), Math.abs(ys[i])));
+        longArithmetic = max < EXACT_LONG_LIMIT;
+        int quadCapacity = Math.max(3 * xs.length, 4);
+        onext = new int[quadCapacity * 4];
+        org = new int[quadCapacity * 4];
+        deleted = new boolean[quadCapacity];
+        if(xs.length >= 2) triangulate(0, xs.length);
+        buildNeighbors();
+        onext = null;
+        org = null;
+        deleted = null;
+    }
+
+    public int siteCount()
+    {
+        return xs.length;
+    }
+
+    public int neighborStart(int site)
+    {
+        return neighborOffsets[site];
+    }
+
+    public int neighborEnd(int site)
+    {
+        return neighborOffsets[site + 1];
+    }
+
+    public int neighborAt(int position)
+    {
+        return neighbors[position];
+    }
+
+    /**
+     * Nearest site to (x, y) found by walking the triangulation from the hint site.
+     * Ties are resolved towards the lowest site index, exactly like the brute-force pixel scan.
+     */
+    @Override
+    public int nearest(int x, int y, int hint)
+    {
+        if(xs.length == 1) return 0;
+        int current = hint;
+        long best = distanceSquared(current, x, y);
+        boolean moved = true;
+        while(moved)
+        {
+            moved = false;
+            for(int k = neighborOffsets[current]; k < neighborOffsets[current + 1]; k++)
+            {
+                int neighbor = neighbors[k];
+                long distance = distanceSquared(neighbor, x, y);
+                if(distance < best)
+                {
+                    best = distance;
+                    current = neighbor;
+                    moved = true;
+                    break;
+                }
+            }
+        }
+        return lowestTiedSite(current, best, x, y);
+    }
+
+    private int lowestTiedSite(int start, long best, int x, int y)
+    {
+        int lowest = start;
+        boolean tied = false;
+        for(int k = neighborOffsets[start]; k < neighborOffsets[start + 1]; k++)
+        {
+            if(distanceSquared(neighbors[k], x, y) == best)
+            {
+                tied = true;
+                break;
+            }
+        }
+        if(!tied) return lowest;
+        // cocircular nearest sites always form a connected Delaunay face, so a walk over equal distances finds them all
+        int[] stack = new int[8];
+        int[] seen = new int[8];
+        int stackSize = 0, seenSize = 0;
+        stack[stackSize++] = start;
+        seen[seenSize++] = start;
+        while(stackSize > 0)
+        {
+            int site = stack[--stackSize];
+            if(site < lowest) lowest = site;
+            for(int k = neighborOffsets[site]; k < neighborOffsets[site + 1]; k++)
+            {
+                int neighbor = neighbors[k];
+                if(distanceSquared(neighbor, x, y) != best || contains(seen, seenSize, neighbor)) continue;
+                if(seenSize == seen.length) seen = Arrays.copyOf(seen, seenSize * 2);
+                seen[seenSize++] = neighbor;
+                if(stackSize == stack.length) stack = Arrays.copyOf(stack, stackSize * 2);
+                stack[stackSize++] = neighbor;
+            }
+        }
+        return lowest;
+    }
+
+    private static boolean contains(int[] values, int size, int value)
+    {
+        for(int i = 0; i < size; i++)
+            if(values[i] == value) return true;
+        return false;
+    }
+
+    private long distanceSquared(int site, int x, int y)
+    {
+        long dx = xs[site] - x, dy = ys[site] - y;
+        return dx * dx + dy * dy;
+    }
+
+    private void buildNeighbors()
+    {
+        int sites = xs.length;
+        neighborOffsets = new int[sites + 1];
+        for(int q = 0; q < edgeCount; q++)
+        {
+            if(deleted[q]) continue;
+            neighborOffsets[org[q << 2] + 1]++;
+            neighborOffsets[org[(q << 2) + 2] + 1]++;
+        }
+        for(int i = 0; i < sites; i++) neighborOffsets[i + 1] += neighborOffsets[i];
+        neighbors = new int[neighborOffsets[sites]];
+        int[] fill = Arrays.copyOf(neighborOffsets, sites);
+        for(int q = 0; q < edgeCount; q++)
+        {
+            if(deleted[q]) continue;
+            int a = org[q << 2], b = org[(q << 2) + 2];
+            neighbors[fill[a]++] = b;
+            neighbors[fill[b]++] = a;
+        }
+    }
+
+    // divide and conquer, returns the counterclockwise convex hull edge out of the leftmost site (high bits)
+    // and the clockwise convex hull edge out of the rightmost site (low bits)
+    private long triangulate(int lo, int hi)
+    {
+        int n = hi - lo;
+        if(n == 2)
+        {
+            int a = makeEdge(lo, lo + 1);
+            return pack(a, sym(a));
+        }
+        if(n == 3)
+        {
+            int a = makeEdge(lo, lo + 1);
+            int b = makeEdge(lo + 1, lo + 2);
+            splice(sym(a), b);
+            int orientation = orient(lo, lo + 1, lo + 2);
+            if(orientation > 0)
+            {
+                connect(b, a);
+                return pack(a, sym(b));
+            }
+            else if(orientation < 0)
+            {
+                int c = connect(b, a);
+                return pack(sym(c), c);
+            }
+            return pack(a, sym(b));
+        }
+        int middle = lo + n / 2;
+        long left = triangulate(lo, middle);
+        long right = triangulate(middle, hi);
+        int ldo = high(left), ldi = low(left);
+        int rdi = high(right), rdo = low(right);
+        while(true)
+        {
+            if(leftOf(org[rdi], ldi)) ldi = lnext(ldi);
+            else if(rightOf(org[ldi], rdi)) rdi = rprev(rdi);
+            else break;
+        }
+        int basel = connect(sym(rdi), ldi);
+        if(org[ldi] == org[ldo]) ldo = sym(basel);
+        if(org[rdi] == org[rdo]) rdo = basel;
+        while(true)
+        {
+            int lcand = onext[sym(basel)];
+            if(valid(lcand, basel))
+            {
+                while(inCircle(dest(basel), org[basel], dest(lcand), dest(onext[lcand])))
+                {
+                    int next = onext[lcand];
+                    deleteEdge(lcand);
+                    lcand = next;
+                }
+            }
+            int rcand = oprev(basel);
+            if(valid(rcand, basel))
+            {
+                while(inCircle(dest(basel), org[basel], dest(rcand), dest(oprev(rcand))))
+                {
+                    int next = oprev(rcand);
+                    deleteEdge(rcand);
+                    rcand = next;
+                }
+            }
+            boolean leftValid = valid(lcand, basel), rightValid = valid(rcand, basel);
+            if(!leftValid && !rightValid) break;
+            if(!leftValid || (rightValid && inCircle(dest(lcand), org[lcand], org[rcand], dest(rcand))))
+                basel = connect(rcand, sym(basel));
+            else
+                basel = connect(sym(basel), sym(lcand));
+        }
+        return pack(ldo, rdo);
+    }
+
+    private static long pack(int high, int low)
+    {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private static int high(long packed)
+    {
+        return (int) (packed >>> 32);
+    }
+
+    private static int low(long packed)
+    {
+        return (int) packed;
+    }
+
+    private boolean valid(int edge, int basel)
+    {
+        return rightOf(dest(edge), basel);
+    }
+
+    private boolean leftOf(int site, int edge)
+    {
+        return orient(site, org[edge], dest(edge)) > 0;
+    }
+
+    private boolean rightOf(int site, int edge)
+    {
+        return orient(site, dest(edge), org[edge]) > 0;
+    }
+
+    private int orient(int a, int b, int c)
+    {
+        long value = (long) (xs[b] - xs[a]) * (ys[c] - ys[a]) - (long) (ys[b] - ys[a]) * (xs[c] - xs[a]);
+        return Long.signum(value);
+    }
+
+    // true when d lies strictly inside the circle through a, b, c (given counterclockwise)
+    private boolean inCircle(int a, int b, int c, int d)
+    {
+        long adx = xs[a] - xs[d], ady = ys[a] - ys[d];
+        long bdx = xs[b] - xs[d], bdy = ys[b] - ys[d];
+        long cdx = xs[c] - xs[d], cdy = ys[c] - ys[d];
+        if(longArithmetic)
+        {
+            long alift = adx * adx + ady * ady;
+            long blift = bdx * bdx + bdy * bdy;
+            long clift = cdx * cdx + cdy * cdy;
+            return alift * (bdx * cdy - bdy * cdx)
+                    + blift * (cdx * ady - cdy * adx)
+                    + clift * (adx * bdy - ady * bdx) > 0;
+        }
+        BigInteger alift = BigInteger.valueOf(adx * adx + ady * ady);
+        BigInteger blift = BigInteger.valueOf(bdx * bdx + bdy * bdy);
+        BigInteger clift = BigInteger.valueOf(cdx * cdx + cdy * cdy);
+        return alift.multiply(BigInteger.valueOf(bdx * cdy - bdy * cdx))
+                .add(blift.multiply(BigInteger.valueOf(cdx * ady - cdy * adx)))
+                .add(clift.multiply(BigInteger.valueOf(adx * bdy - ady * bdx))).signum() > 0;
+    }
+
+    // quad-edge structure, four directed edges per quad stored consecutively
+    private static int rot(int e)
+    {
+        return (e & ~3) | ((e + 1) & 3);
+    }
+
+    private static int sym(int e)
+    {
+        return (e & ~3) | ((e + 2) & 3);
+    }
+
+    private static int rotInv(int e)
+    {
+        return (e & ~3) | ((e + 3) & 3);
+    }
+
+    private int dest(int e)
+    {
+        return org[sym(e)];
+    }
+
+    private int lnext(int e)
+    {
+        return rot(onext[rotInv(e)]);
+    }
+
+    private int oprev(int e)
+    {
+        return rot(onext[rot(e)]);
+    }
+
+    private int rprev(int e)
+    {
+        return onext[sym(e)];
+    }
+
+    private int makeEdge(int from, int to)
+    {
+        if(edgeCount == deleted.length)
+        {
+            deleted = Arrays.copyOf(deleted, edgeCount * 2);
+            onext = Arrays.copyOf(onext, edgeCount * 8);
+            org = Arrays.copyOf(org, edgeCount * 8);
+        }
+        int e = edgeCount++ << 2;
+        onext[e] = e;
+        onext[e + 1] = e + 3;
+        onext[e + 2] = e + 2;
+        onext[e + 3] = e + 1;
+        org[e] = from;
+        org[e + 2] = to;
+        return e;
+    }
+
+    private void splice(int a, int b)
+    {
+        int alpha = rot(onext[a]);
+        int beta = rot(onext[b]);
+        int temp = onext[a];
+        onext[a] = onext[b];
+        onext[b] = temp;
+        temp = onext[alpha];
+        onext[alpha] = onext[beta];
+        onext[beta] = temp;
+    }
+
+    private int connect(int a, int b)
+    {
+        int e = makeEdge(dest(a), org[b]);
+        splice(e, lnext(a));
+        splice(sym(e), b);
+        return e;
+    }
+
+    private void deleteEdge(int e)
+    {
+        splice(e, oprev(e));
+        splice(sym(e), oprev(sym(e)));
+        deleted[e >> 2] = true;
+    }
+}
@@ -0,0 +1,47 @@
+package MapGeneration.DiagramGeneration;
+
+import MapGeneration.Graph.PolygonGraph;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of packed polygon edges. Repeats of the last edge are dropped on add and the
+ * buffer sorts out its duplicates before growing, so it stays proportional to the distinct edges.
+ */
+public class EdgeBuffer {
+    private long[] edges = new long[256];
+    private int size;
+
+    public void add(int a, int b)
+    {
+        long edge = PolygonGraph.packEdge(a, b);
+        if(size > 0 && edges[size - 1] == edge) return;
+        if(size == edges.length)
+        {
+            compact();
+            if(size > edges.length / 2) edges = Arrays.copyOf(edges, edges.length * 2);
+        }
+        edges[size++] = edge;
+    }
+
+    public void addAll(EdgeBuffer other)
+    {
+        if(size + other.size > edges.length) edges = Arrays.copyOf(edges, size + other.size);
+        System.arraycopy(other.edges, 0, edges, size, other.size);
+        size += other.size;
+    }
+
+    public PolygonGraph toGraph(int polygonCount)
+    {
+        return PolygonGraph.fromEdges(edges, size, polygonCount);
+    }
+
+    private void compact()
+    {
+        Arrays.sort(edges, 0, size);
+        int unique = 0;
+        for(int i = 0; i < size; i++)
+            if(unique == 0 || edges[i] != edges[unique - 1]) edges[unique++] = edges[i];
+        size = unique;
+    }
+}
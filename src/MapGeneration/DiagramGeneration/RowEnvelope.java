@@ -0,0 +1,124 @@
+package MapGeneration.DiagramGeneration;
+
+import java.util.Arrays;
+
+/**
+ * Nearest seed for a whole pixel row at once. Along a row the squared distance to a seed is a parabola, so
+ * the owners are the lower envelope of the parabolas of the seeds close enough to matter, found in one sweep
+ * over those seeds sorted by x. Ties go to the lowest index like in the other locators.
+ * The row buckets are shared between copies, the sweep buffers are not, so use one copy per thread.
+ */
+public class RowEnvelope {
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] rowStart;
+    private final int[] rowSeeds;
+    private long[] candidates = new long[256];
+    private int[] owners = new int[64];
+    private long[] starts = new long[64];
+    private int size;
+    private int xSize;
+
+    public RowEnvelope(int[] xs, int[] ys, int ySize)
+    {
+        this.xs = xs;
+        this.ys = ys;
+        rowStart = new int[ySize + 1];
+        rowSeeds = new int[xs.length];
+        for(int i = 0; i < xs.length; i++) rowStart[ys[i] + 1]++;
+        for(int y = 0; y < ySize; y++) rowStart[y + 1] += rowStart[y];
+        int[] fill = Arrays.copyOf(rowStart, ySize);
+        for(int i = 0; i < xs.length; i++) rowSeeds[fill[ys[i]]++] = i;
+    }
+
+    public RowEnvelope(RowEnvelope shared)
+    {
+        xs = shared.xs;
+        ys = shared.ys;
+        rowStart = shared.rowStart;
+        rowSeeds = shared.rowSeeds;
+    }
+
+    /**
+     * Builds the envelope of row y over [0, xSize). Every pixel of the row must have a seed within
+     * squared distance reach, only the seeds that close to the row are considered.
+     * Returns the number of segments.
+     */
+    public int build(int y, long reach, int xSize)
+    {
+        this.xSize = xSize;
+        int radius = (int) Math.min(Math.sqrt(reach) + 1, rowStart.length);
+        int count = 0;
+        for(int row = Math.max(0, y - radius); row <= Math.min(rowStart.length - 2, y + radius); row++)
+        {
+            if((long) (row - y) * (row - y) > reach) continue;
+            if(count + rowStart[row + 1] - rowStart[row] > candidates.length)
+                candidates = Arrays.copyOf(candidates, Math.max(candidates.length * 2, count + rowStart[row + 1] - rowStart[row]));
+            for(int k = rowStart[row]; k < rowStart[row + 1]; k++)
+                candidates[count++] = (long) xs[rowSeeds[k]] << 32 | rowSeeds[k];
+        }
+        // by x, then by index
+        Arrays.sort(candidates, 0, count);
+        size = 0;
+        for(int k = 0; k < count; k++) push((int) candidates[k], y);
+        return size;
+    }
+
+    public int owner(int segment)
+    {
+        return owners[segment];
+    }
+
+    public int segmentStart(int segment)
+    {
+        return (int) Math.max(0, starts[segment]);
+    }
+
+    public int segmentEnd(int segment)
+    {
+        return segment + 1 < size ? (int) starts[segment + 1] : xSize;
+    }
+
+    private void push(int seed, int y)
+    {
+        long start = Long.MIN_VALUE;
+        while(size > 0)
+        {
+            int top = owners[size - 1];
+            if(xs[top] == xs[seed])
+            {
+                // same column: the vertically closer one wins everywhere, the earlier pushed lower index on a tie
+                if(verticalSquared(seed, y) >= verticalSquared(top, y)) return;
+                size--;
+                continue;
+            }
+            start = takeover(top, seed, y);
+            if(start >= xSize) return;
+            // top keeps the seed only if some pixel of the row is left between them
+            if(start > Math.max(0, starts[size - 1])) break;
+            size--;
+            start = Long.MIN_VALUE;
+        }
+        if(size == owners.length)
+        {
+            owners = Arrays.copyOf(owners, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+        }
+        owners[size] = seed;
+        starts[size++] = start;
+    }
+
+    // first x at which the seed (right of top) is nearer than top, or as near with a lower index
+    private long takeover(int top, int seed, int y)
+    {
+        long slope = 2L * (xs[seed] - xs[top]);
+        long offset = (long) xs[seed] * xs[seed] + verticalSquared(seed, y) - (long) xs[top] * xs[top] - verticalSquared(top, y);
+        return seed < top ? -Math.floorDiv(-offset, slope) : Math.floorDiv(offset, slope) + 1;
+    }
+
+    private long verticalSquared(int seed, int y)
+    {
+        long dy = ys[seed] - y;
+        return dy * dy;
+    }
+}
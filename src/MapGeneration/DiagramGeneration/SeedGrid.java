@@ -0,0 +1,84 @@
+package MapGeneration.DiagramGeneration;
+
+/**
+ * Uniform bucket grid over the seeds. Lookups search outward ring by ring and stop as soon as
+ * no unvisited ring can hold a closer (or equally close, lower indexed) seed.
+ */
+public class SeedGrid implements SeedLocator {
+    private final int[] xs;
+    private final int[] ys;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellSeeds;
+
+    public SeedGrid(int[] xs, int[] ys, int xSize, int ySize)
+    {
+        this.xs = xs;
+        this.ys = ys;
+        cellSize = Math.max(1, (int) Math.ceil(Math.sqrt((double) xSize * ySize / Math.max(1, xs.length))));
+        columns = (xSize + cellSize - 1) / cellSize;
+        rows = (ySize + cellSize - 1) / cellSize;
+        cellStart = new int[columns * rows + 1];
+        cellSeeds = new int[xs.length];
+        for(int i = 0; i < xs.length; i++) cellStart[cellOf(i) + 1]++;
+        for(int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+        int[] fill = new int[columns * rows];
+        System.arraycopy(cellStart, 0, fill, 0, fill.length);
+        // seeds are bucketed in index order, so each bucket stays sorted by index
+        for(int i = 0; i < xs.length; i++) cellSeeds[fill[cellOf(i)]++] = i;
+    }
+
+    private int cellOf(int seed)
+    {
+        return (ys[seed] / cellSize) * columns + xs[seed] / cellSize;
+    }
+
+    @Override
+    public int nearest(int x, int y, int hint)
+    {
+        int best = hint;
+        long bestDistance = distanceSquared(hint, x, y);
+        int cx = x / cellSize, cy = y / cellSize;
+        int lx = x - cx * cellSize, ly = y - cy * cellSize;
+        int edgeGap = Math.min(Math.min(lx + 1, cellSize - lx), Math.min(ly + 1, cellSize - ly));
+        int maxRing = Math.max(columns, rows);
+        for(int ring = 0; ring <= maxRing; ring++)
+        {
+            if(ring > 0)
+            {
+                long gap = (long) (ring - 1) * cellSize + edgeGap;
+                if(gap * gap > bestDistance) break;
+            }
+            int minX = cx - ring, maxX = cx + ring, minY = cy - ring, maxY = cy + ring;
+            for(int gy = Math.max(minY, 0); gy <= Math.min(maxY, rows - 1); gy++)
+            {
+                boolean fullRow = gy == minY || gy == maxY;
+                int step = fullRow ? 1 : maxX - minX;
+                for(int gx = minX; gx <= maxX; gx += step)
+                {
+                    if(gx < 0 || gx >= columns) continue;
+                    int cell = gy * columns + gx;
+                    for(int k = cellStart[cell]; k < cellStart[cell + 1]; k++)
+                    {
+                        int seed = cellSeeds[k];
+                        long distance = distanceSquared(seed, x, y);
+                        if(distance < bestDistance || (distance == bestDistance && seed < best))
+                        {
+                            bestDistance = distance;
+                            best = seed;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private long distanceSquared(int seed, int x, int y)
+    {
+        long dx = xs[seed] - x, dy = ys[seed] - y;
+        return dx * dx + dy * dy;
+    }
+}
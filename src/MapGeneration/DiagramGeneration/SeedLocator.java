@@ -0,0 +1,10 @@
+package MapGeneration.DiagramGeneration;
+
+
+public interface SeedLocator {
+    /**
+     * Index of the seed closest to (x, y), the lowest index on ties.
+     * The hint is a likely owner (usually the previous pixel's) used as the first candidate.
+     */
+    int nearest(int x, int y, int hint);
+}
@@ -2,7 +2,7 @@ package MapGeneration.GenerationSettings;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Random;
 
 /**
  * Created by Phoenicia on 28.01.2017.
@@ -21,7 +21,14 @@ public class Options {
     private double moistureClimateModificator;
     private int riverCountModificator;
     private double cityModifier;
-    private ArrayList cityNames;
+    private ArrayList<String> cityNames;
+    private RasterizationMode rasterizationMode;
+    private int parallelism;
+    private PixelStorage pixelStorage;
+    private long seed;
+    private int relaxationIterations;
+    private SeedSampling seedSampling;
+    private RiverModel riverModel;
    // private int moistureModifier();
 
     public Options(int x, int y, int p)
@@ -32,6 +39,41 @@ public class Options {
         setDefaultVaules();
     }
 
+    public Options copy()
+    {
+        return copy(xSize, ySize, polygons);
+    }
+
+    /**
+     * Copy of these settings for a map of another size, e.g. one region of a tiled world.
+     */
+    public Options copy(int x, int y, int p)
+    {
+        Options copy = new Options(x, y, p);
+        copy.lakeCountModificator = lakeCountModificator;
+        copy.totalLakeAreaLimitMultipler = totalLakeAreaLimitMultipler;
+        copy.lakeSizeLimitModificator = lakeSizeLimitModificator;
+        copy.waterLevelConstant = waterLevelConstant;
+        copy.landmassMinPercentage = landmassMinPercentage;
+        copy.topWater = topWater;
+        copy.bottomWater = bottomWater;
+        copy.leftWater = leftWater;
+        copy.rightWater = rightWater;
+        copy.climate = climate;
+        copy.moistureClimateModificator = moistureClimateModificator;
+        copy.riverCountModificator = riverCountModificator;
+        copy.cityModifier = cityModifier;
+        copy.cityNames = new ArrayList<>(cityNames);
+        copy.rasterizationMode = rasterizationMode;
+        copy.parallelism = parallelism;
+        copy.pixelStorage = pixelStorage;
+        copy.seed = seed;
+        copy.relaxationIterations = relaxationIterations;
+        copy.seedSampling = seedSampling;
+        copy.riverModel = riverModel;
+        return copy;
+    }
+
     private void setDefaultVaules()
     {
         waterLevelConstant = 0.018;
@@ -44,18 +86,23 @@ public class Options {
         climate = MapPositionOnPlanet.EquatorOnMiddle;
         moistureClimateModificator = 0.8;
         cityModifier = 0.4;
+        rasterizationMode = RasterizationMode.SeedGrid;
+        parallelism = Runtime.getRuntime().availableProcessors();
+        pixelStorage = PixelStorage.OwnershipGrid;
+        seedSampling = SeedSampling.UniformRandom;
+        riverModel = RiverModel.SourceTracing;
+        seed = new Random().nextLong();
         setDefaultCityNames();
     }
 
     private void setDefaultCityNames() {
-        cityNames =new ArrayList( Arrays.asList(new String[]{"Aerilon", "Albion","Aquarin", "Avalon","Aramoor","Azmar","Begger’s Hole","Black Hollow","Blue Field","Briar Glen","Brickelwhyte",
+        cityNames =new ArrayList<>( Arrays.asList(new String[]{"Aerilon", "Albion","Aquarin", "Avalon","Aramoor","Azmar","Begger’s Hole","Black Hollow","Blue Field","Briar Glen","Brickelwhyte",
         "Broken Shield","Boatwright","Bullmar","Carran","City of Fire","Coalfell","Cullfield","Darkwell","Deathfall","Doonatel","Dry Gulch","Easthaven","Ecrin",
         "Erast", "Far Water", "Firebend", "Fool’s March", "Frostford", "Goldcrest","Goldenleaf","Greenflower","Garen’s Well","Haran","Hillfar","Hogsfeet",
                 "Hollyhead","Hull","Hwen","Icemeet","Irragin","Jongvale","Leeside","Lullin","Millstone","Moonbright","Mountmend","Nearon","New Cresthill",
          "Northpass", "Nuxvar", "Oakheart", "Old Ashton", "Orrinshire", "Ozryn", "Pavv", "Pran", "Quan Ma", "Queenstown", "Ramshorn", "Rivermouth", "Seameet",
                 "Silverkeep", "South Warren", "Snowmelt", "Swordbreak", "Tarrin", "Trudid", "Ula’ree", "Veritas", "Wavemeet", "Whiteridge", "Willowdale",
                 "Windrip", "Wellspring", "Westwend", "Wolfden", "Yellowseed","Zumka"}));
-        Collections.shuffle(cityNames);
     }
 
 
@@ -183,4 +230,71 @@ public class Options {
     public void setCityNames(ArrayList<String> cityNames) {
         this.cityNames = cityNames;
     }
+
+    public RasterizationMode getRasterizationMode() {
+        return rasterizationMode;
+    }
+
+    public void setRasterizationMode(RasterizationMode rasterizationMode) {
+        this.rasterizationMode = rasterizationMode;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public PixelStorage getPixelStorage() {
+        return pixelStorage;
+    }
+
+    public void setPixelStorage(PixelStorage pixelStorage) {
+        this.pixelStorage = pixelStorage;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getRelaxationIterations() {
+        return relaxationIterations;
+    }
+
+    /**
+     * Rounds of Lloyd relaxation that even out the polygon sizes, 0 (the default) keeps the random seeds.
+     */
+    public void setRelaxationIterations(int relaxationIterations) {
+        this.relaxationIterations = relaxationIterations;
+    }
+
+    public SeedSampling getSeedSampling() {
+        return seedSampling;
+    }
+
+    /**
+     * How polygon centers are placed. PoissonDisk spaces them evenly and always yields the requested polygon count,
+     * UniformRandom (the default) drops the duplicate points of its random draw.
+     */
+    public void setSeedSampling(SeedSampling seedSampling) {
+        this.seedSampling = seedSampling;
+    }
+
+    public RiverModel getRiverModel() {
+        return riverModel;
+    }
+
+    /**
+     * SourceTracing (the default) follows random sources downhill. FlowAccumulation sums the drainage area of every
+     * polygon and makes rivers wherever it passes a threshold, which also gives each polygon its flow and basin.
+     */
+    public void setRiverModel(RiverModel riverModel) {
+        this.riverModel = riverModel;
+    }
 }
@@ -0,0 +1,54 @@
+package MapGeneration.GenerationSettings;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The Options values generation stages can depend on. Parallelism is left out, it never changes the map.
+ */
+public enum OptionsField {
+    Width(Options::getXSize),
+    Height(Options::getYSize),
+    Polygons(Options::getPolygons),
+    RasterizationMode(Options::getRasterizationMode),
+    PixelStorage(Options::getPixelStorage),
+    Seed(Options::getSeed),
+    RelaxationIterations(Options::getRelaxationIterations),
+    SeedSampling(Options::getSeedSampling),
+    TopWater(Options::isTopWater),
+    BottomWater(Options::isBottomWater),
+    LeftWater(Options::isLeftWater),
+    RightWater(Options::isRightWater),
+    WaterLevelConstant(Options::getWaterLevelConstant),
+    LandmassMinPercentage(Options::getLandmassMinPercentage),
+    LakeCountModificator(Options::getLakeCountModificator),
+    TotalLakeAreaLimitMultipler(Options::getTotalLakeAreaLimitMultipler),
+    LakeSizeLimitModificator(Options::getLakeSizeLimitModificator),
+    Climate(Options::getClimate),
+    MoistureClimateModificator(Options::getMoistureClimateModificator),
+    RiverCountModificator(Options::getRiverCountModificator),
+    RiverModel(Options::getRiverModel),
+    CityModifier(Options::getCityModifier),
+    CityNames(Options::getCityNames);
+
+    private final Function<Options, Object> getter;
+
+    OptionsField(Function<Options, Object> getter)
+    {
+        this.getter = getter;
+    }
+
+    public Object get(Options settings)
+    {
+        return getter.apply(settings);
+    }
+
+    public static EnumSet<OptionsField> changed(Options before, Options after)
+    {
+        EnumSet<OptionsField> changed = EnumSet.noneOf(OptionsField.class);
+        for(OptionsField field: values())
+            if(!Objects.equals(field.get(before), field.get(after))) changed.add(field);
+        return changed;
+    }
+}
@@ -0,0 +1,6 @@
+package MapGeneration.GenerationSettings;
+
+
+public enum PixelStorage {
+    OwnershipGrid, PointGrid
+}
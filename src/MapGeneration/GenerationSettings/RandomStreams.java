@@ -0,0 +1,43 @@
+package MapGeneration.GenerationSettings;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Independent random streams derived from the master seed in Options, one per generation stage,
+ * so a stage draws the same numbers no matter what the other stages consumed.
+ */
+public class RandomStreams {
+    public enum Stage {
+        CentralPoints, Ocean, Lakes, Climate, Rivers, Cities, Elevation
+    }
+
+    public static SplittableRandom forStage(long seed, Stage stage)
+    {
+        return new SplittableRandom(mix(seed + 0x9E3779B97F4A7C15L * (stage.ordinal() + 1)));
+    }
+
+    /**
+     * Stream for one chunk of a tiled world, independent of the chunks around it and of the stage streams.
+     */
+    public static SplittableRandom forChunk(long seed, int chunkX, int chunkY)
+    {
+        long chunk = ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+        return new SplittableRandom(mix(mix(seed ^ 0x6A09E667F3BCC909L) + mix(chunk)));
+    }
+
+    /**
+     * java.util.Random seeded from the stream, for APIs such as Collections.shuffle that need one.
+     */
+    public static Random asRandom(SplittableRandom stream)
+    {
+        return new Random(stream.nextLong());
+    }
+
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
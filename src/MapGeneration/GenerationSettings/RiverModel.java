@@ -0,0 +1,6 @@
+package MapGeneration.GenerationSettings;
+
+
+public enum RiverModel {
+    SourceTracing, FlowAccumulation
+}
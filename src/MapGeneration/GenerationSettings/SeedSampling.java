@@ -0,0 +1,6 @@
+package MapGeneration.GenerationSettings;
+
+
+public enum SeedSampling {
+    UniformRandom, PoissonDisk
+}
@@ -0,0 +1,175 @@
+package MapGeneration.Graph;
+
+import MapGeneration.WorkerPools;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Multi-source BFS distances for up to 32 fields computed in one fused, level-synchronous traversal.
+ * Every frontier entry carries the bit mask of fields that reached it on this level; large levels are
+ * expanded across worker threads, with visited bits claimed atomically per field. Distances are the
+ * same as a sequential BFS per field, UNREACHED where a field never arrives.
+ */
+public class DistanceFields {
+    public static final int UNREACHED = -1;
+    private static final int PARALLEL_LEVEL_SIZE = 4096;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final PolygonGraph graph;
+    private final int parallelism;
+    private final List<IntPredicate> sources = new ArrayList<>();
+    private final List<IntPredicate> passable = new ArrayList<>();
+    private long visitedCount;
+
+    public DistanceFields(PolygonGraph graph, int parallelism)
+    {
+        this.graph = graph;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Adds a field starting at distance 0 from every source polygon and spreading only into passable ones.
+     * Returns the field's position in the result of compute().
+     */
+    public int addField(IntPredicate source, IntPredicate passableInto)
+    {
+        if(sources.size() == Integer.SIZE) throw new IllegalStateException("At most 32 distance fields can be fused");
+        sources.add(source);
+        passable.add(passableInto);
+        return sources.size() - 1;
+    }
+
+    public int[][] compute()
+    {
+        int polygonCount = graph.size();
+        int fieldCount = sources.size();
+        int[][] distances = new int[fieldCount][polygonCount];
+        AtomicIntegerArray visited = new AtomicIntegerArray(polygonCount);
+        int[] passableBits = new int[polygonCount];
+        Frontier frontier = new Frontier();
+        for(int polygon = 0; polygon < polygonCount; polygon++)
+        {
+            int sourceBits = 0;
+            for(int field = 0; field < fieldCount; field++)
+            {
+                distances[field][polygon] = UNREACHED;
+                if(passable.get(field).test(polygon)) passableBits[polygon] |= 1 << field;
+                if(sources.get(field).test(polygon))
+                {
+                    sourceBits |= 1 << field;
+                    distances[field][polygon] = 0;
+                }
+            }
+            if(sourceBits != 0)
+            {
+                visited.set(polygon, sourceBits);
+                frontier.add(polygon, sourceBits);
+            }
+        }
+        ForkJoinPool pool = WorkerPools.forParallelism(parallelism);
+        int level = 0;
+        while(frontier.size > 0)
+        {
+            visitedCount += frontier.size;
+            frontier = expand(frontier, level + 1, distances, visited, passableBits, pool);
+            level++;
+        }
+        return distances;
+    }
+
+    /**
+     * Number of frontier entries expanded over all compute() calls, a polygon reached by several
+     * fields on the same level counts once.
+     */
+    public long getVisitedCount()
+    {
+        return visitedCount;
+    }
+
+    private Frontier expand(Frontier frontier, int distance, int[][] distances, AtomicIntegerArray visited, int[] passableBits, ForkJoinPool pool)
+    {
+        if(pool == null || frontier.size < PARALLEL_LEVEL_SIZE)
+        {
+            Frontier next = new Frontier();
+            expandRange(frontier, 0, frontier.size, distance, distances, visited, passableBits, next);
+            return next;
+        }
+        int chunks = (frontier.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Frontier[] nextParts = new Frontier[chunks];
+        try {
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                Frontier part = new Frontier();
+                expandRange(frontier, chunk * CHUNK_SIZE, Math.min(frontier.size, (chunk + 1) * CHUNK_SIZE), distance, distances, visited, passableBits, part);
+                nextParts[chunk] = part;
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Distance field computation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Distance field computation failed", e.getCause());
+        }
+        Frontier next = new Frontier();
+        for(Frontier part: nextParts) next.addAll(part);
+        return next;
+    }
+
+    private void expandRange(Frontier frontier, int from, int to, int distance, int[][] distances, AtomicIntegerArray visited, int[] passableBits, Frontier next)
+    {
+        for(int i = from; i < to; i++)
+        {
+            int polygon = frontier.polygons[i], fields = frontier.fields[i];
+            for(int k = graph.neighborStart(polygon); k < graph.neighborEnd(polygon); k++)
+            {
+                int neighbour = graph.neighborAt(k);
+                int candidate = fields & passableBits[neighbour];
+                if(candidate == 0) continue;
+                int claimed;
+                while(true)
+                {
+                    int old = visited.get(neighbour);
+                    claimed = candidate & ~old;
+                    if(claimed == 0 || visited.compareAndSet(neighbour, old, old | claimed)) break;
+                }
+                if(claimed == 0) continue;
+                for(int bits = claimed; bits != 0; bits &= bits - 1)
+                    distances[Integer.numberOfTrailingZeros(bits)][neighbour] = distance;
+                next.add(neighbour, claimed);
+            }
+        }
+    }
+
+    private static class Frontier {
+        int[] polygons = new int[64];
+        int[] fields = new int[64];
+        int size;
+
+        void add(int polygon, int fieldBits)
+        {
+            if(size == polygons.length)
+            {
+                polygons = Arrays.copyOf(polygons, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            polygons[size] = polygon;
+            fields[size++] = fieldBits;
+        }
+
+        void addAll(Frontier other)
+        {
+            if(size + other.size > polygons.length)
+            {
+                polygons = Arrays.copyOf(polygons, Math.max(size + other.size, size * 2));
+                fields = Arrays.copyOf(fields, polygons.length);
+            }
+            System.arraycopy(other.polygons, 0, polygons, size, other.size);
+            System.arraycopy(other.fields, 0, fields, size, other.size);
+            size += other.size;
+        }
+    }
+}
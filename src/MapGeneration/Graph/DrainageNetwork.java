@@ -0,0 +1,117 @@
+package MapGeneration.Graph;
+
+import MapGeneration.Graph.PolygonProperties.WaterType;
+
+/**
+ * Downhill drainage over the polygon graph. Every land polygon drains into its lowest neighbour if that one is
+ * lower than itself, ordering by the filled height, then index. The order is strict, so the receivers form a
+ * forest and cannot cycle. Water polygons drain nowhere and are the outlets of their basins, as are land pits
+ * if the heights were not filled. One pass over the donor counts (Kahn's algorithm) yields a topological order with donors before
+ * receivers, along which the drainage area of every polygon is summed; the reverse order hands out the basins.
+ */
+public class DrainageNetwork {
+    private final int[] receivers;
+    private final int[] order;
+    private final int[] flow;
+    private final int[] basins;
+    private final int basinCount;
+
+    public DrainageNetwork(PolygonGraph graph, PolygonAttributes attributes, PolygonSpans spans)
+    {
+        int polygonCount = attributes.size();
+        int land = WaterType.Land.ordinal();
+        receivers = new int[polygonCount];
+        int[] donors = new int[polygonCount];
+        for(int polygon = 0; polygon < polygonCount; polygon++)
+        {
+            receivers[polygon] = -1;
+            if(attributes.getWaterOrdinal(polygon) != land) continue;
+            int lowest = polygon;
+            for(int k = graph.neighborStart(polygon); k < graph.neighborEnd(polygon); k++)
+            {
+                int neighbour = graph.neighborAt(k);
+                if(isLower(attributes, neighbour, lowest)) lowest = neighbour;
+            }
+            if(lowest == polygon) continue;
+            receivers[polygon] = lowest;
+            donors[lowest]++;
+        }
+
+        // the order array doubles as the queue of polygons whose donors are all done
+        order = new int[polygonCount];
+        flow = new int[polygonCount];
+        int head = 0, tail = 0;
+        for(int polygon = 0; polygon < polygonCount; polygon++)
+        {
+            flow[polygon] = spans.getArea(polygon);
+            if(donors[polygon] == 0) order[tail++] = polygon;
+        }
+        while(head < tail)
+        {
+            int polygon = order[head++];
+            int receiver = receivers[polygon];
+            if(receiver < 0) continue;
+            flow[receiver] += flow[polygon];
+            if(--donors[receiver] == 0) order[tail++] = receiver;
+        }
+
+        basins = new int[polygonCount];
+        int outlets = 0;
+        for(int polygon = 0; polygon < polygonCount; polygon++) basins[polygon] = receivers[polygon] < 0 ? outlets++ : -1;
+        basinCount = outlets;
+        for(int i = polygonCount - 1; i >= 0; i--)
+        {
+            int polygon = order[i];
+            if(receivers[polygon] >= 0) basins[polygon] = basins[receivers[polygon]];
+        }
+    }
+
+    private static boolean isLower(PolygonAttributes attributes, int polygon, int than)
+    {
+        float height = attributes.getHeight(polygon), otherHeight = attributes.getHeight(than);
+        if(height != otherHeight) return height < otherHeight;
+        return polygon < than;
+    }
+
+    public int size()
+    {
+        return receivers.length;
+    }
+
+    /**
+     * Polygon the given one drains into, -1 for outlets.
+     */
+    public int getReceiver(int polygon)
+    {
+        return receivers[polygon];
+    }
+
+    /**
+     * The i-th polygon in an order where every polygon comes before the one it drains into.
+     */
+    public int orderAt(int i)
+    {
+        return order[i];
+    }
+
+    /**
+     * Pixels of the polygon and of every polygon draining into it.
+     */
+    public int getFlow(int polygon)
+    {
+        return flow[polygon];
+    }
+
+    /**
+     * Basin id in [0, getBasinCount()), numbered by the outlet's polygon index.
+     */
+    public int getBasin(int polygon)
+    {
+        return basins[polygon];
+    }
+
+    public int getBasinCount()
+    {
+        return basinCount;
+    }
+}
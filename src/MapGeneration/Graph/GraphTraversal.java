@@ -0,0 +1,106 @@
+package MapGeneration.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Reusable flood fill state over polygon indices: an epoch-stamped visited marker and a primitive
+ * ring buffer queue. reset() starts a new traversal in O(1), so no per-node allocation happens.
+ */
+public class GraphTraversal {
+    private final int[] visitedEpoch;
+    private int epoch;
+    private int[] queue;
+    private int head;
+    private int size;
+    private long visitedCount;
+
+    public GraphTraversal(int polygonCount)
+    {
+        visitedEpoch = new int[polygonCount];
+        queue = new int[Math.max(polygonCount, 16)];
+        epoch = 1;
+    }
+
+    public void reset()
+    {
+        head = 0;
+        size = 0;
+        if(epoch == Integer.MAX_VALUE)
+        {
+            Arrays.fill(visitedEpoch, 0);
+            epoch = 0;
+        }
+        epoch++;
+    }
+
+    public boolean isVisited(int polygon)
+    {
+        return visitedEpoch[polygon] == epoch;
+    }
+
+    /**
+     * Marks the polygon, returns false if it was already visited in this traversal.
+     */
+    public boolean visit(int polygon)
+    {
+        if(visitedEpoch[polygon] == epoch) return false;
+        visitedEpoch[polygon] = epoch;
+        visitedCount++;
+        return true;
+    }
+
+    public void enqueue(int polygon)
+    {
+        if(size == queue.length) grow();
+        int tail = head + size;
+        if(tail >= queue.length) tail -= queue.length;
+        queue[tail] = polygon;
+        size++;
+    }
+
+    /**
+     * Visits and enqueues the polygon unless it was already visited.
+     */
+    public boolean offer(int polygon)
+    {
+        if(!visit(polygon)) return false;
+        enqueue(polygon);
+        return true;
+    }
+
+    public int poll()
+    {
+        int polygon = queue[head];
+        if(++head == queue.length) head = 0;
+        size--;
+        return polygon;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int queueSize()
+    {
+        return size;
+    }
+
+    /**
+     * Total number of visit marks made since construction, across all traversals.
+     */
+    public long getVisitedCount()
+    {
+        return visitedCount;
+    }
+
+    private void grow()
+    {
+        int[] grown = new int[queue.length * 2];
+        int firstPart = Math.min(size, queue.length - head);
+        System.arraycopy(queue, head, grown, 0, firstPart);
+        System.arraycopy(queue, 0, grown, firstPart, size - firstPart);
+        queue = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,78 @@
+package MapGeneration.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Polygon index of every pixel in row-major order. Maps with at most 65536 polygons
+ * are stored as unsigned shorts, larger ones as ints.
+ */
+public class PixelOwnership {
+    private static final int SHORT_LIMIT = 1 << 16;
+
+    private final int xSize;
+    private final int ySize;
+    private final short[] shortOwners;
+    private final int[] intOwners;
+
+    public PixelOwnership(int xSize, int ySize, int polygonCount)
+    {
+        this.xSize = xSize;
+        this.ySize = ySize;
+        if(polygonCount <= SHORT_LIMIT)
+        {
+            shortOwners = new short[xSize * ySize];
+            intOwners = null;
+        }
+        else
+        {
+            shortOwners = null;
+            intOwners = new int[xSize * ySize];
+        }
+    }
+
+    public int getXSize()
+    {
+        return xSize;
+    }
+
+    public int getYSize()
+    {
+        return ySize;
+    }
+
+    public int size()
+    {
+        return xSize * ySize;
+    }
+
+    public int get(int x, int y)
+    {
+        return get(y * xSize + x);
+    }
+
+    public int get(int index)
+    {
+        if(shortOwners != null) return shortOwners[index] & 0xFFFF;
+        return intOwners[index];
+    }
+
+    public void set(int x, int y, int owner)
+    {
+        set(y * xSize + x, owner);
+    }
+
+    public void set(int index, int owner)
+    {
+        if(shortOwners != null) shortOwners[index] = (short) owner;
+        else intOwners[index] = owner;
+    }
+
+    /**
+     * Assigns the pixels from fromIndex up to, not including, toIndex.
+     */
+    public void fill(int fromIndex, int toIndex, int owner)
+    {
+        if(shortOwners != null) Arrays.fill(shortOwners, fromIndex, toIndex, (short) owner);
+        else Arrays.fill(intOwners, fromIndex, toIndex, owner);
+    }
+}
@@ -3,127 +3,183 @@ package MapGeneration.Graph;
 import MapGeneration.Graph.PolygonProperties.*;
 import MapGeneration.Graph.PolygonProperties.Biomes.Biome;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.List;
 
 public class Polygon implements Comparable<Polygon>,GraphElement {
+    public final int index;
     public final Point centerPoint;
-    public WaterType water;
-    public Polygon riverDirection;
-    public Elevation elevation;
-    public int distanceToOcean;
-    public int distanceToLake;
-    public Moisture moisture;
-    public Temperature temperature;
-    public Biome biome;
-    public City city;
-    public boolean river;
+    private final PolygonAttributes attributes;
 
-    public Polygon(int x, int y)
+    public Polygon(int index, int x, int y, PolygonAttributes attributes)
     {
+        this.index = index;
+        this.attributes = attributes;
         centerPoint = new Point(x,y);
-        neighborPolygons = new ArrayList<>();
-        polygonPixels = new ArrayList<>();
-        distanceToOcean = -1;
-        elevation = Elevation.Water;
-        distanceToLake = 999;
-        river = false;
-    }
-    public ArrayList<Point> polygonPixels;
-    public ArrayList<Polygon> neighborPolygons;
-
-    public double getWaterToLandNeighbourRatio()
-    {
-        double counter =  0;
-        for(Polygon neighbour: neighborPolygons)
-        {
-            if(neighbour.water != null && neighbour.water != WaterType.Land) counter++;
-        }
-        return counter / neighborPolygons.size();
+        attributes.bind(this);
     }
 
-    public void setPotentialRiverDirection()
+    /**
+     * Read-only view of the neighbours in the polygon graph, built on each call. Hot paths walk the graph directly.
+     */
+    public List<Polygon> getNeighborPolygons()
     {
-        riverDirection = this;
-        if(hasOceanNeighbour())
-        {
-            for(Polygon polygon: neighborPolygons)
+        PolygonGraph graph = attributes.getGraph();
+        int start = graph.neighborStart(index), end = graph.neighborEnd(index);
+        return new AbstractList<Polygon>() {
+            @Override
+            public Polygon get(int i)
             {
-                if(polygon.water == WaterType.Ocean){
-                    riverDirection = polygon;
-                break;}
+                if(i < 0 || i >= end - start) throw new IndexOutOfBoundsException("Neighbour " + i + " of " + (end - start));
+                return attributes.getPolygon(graph.neighborAt(start + i));
             }
 
-        }
-        for(Polygon polygon: neighborPolygons)
-        {
-            if(polygon.elevation.ordinal() < riverDirection.elevation.ordinal() && polygon.riverDirection != this) {
-                riverDirection = polygon;
-            }
-            if(riverDirection.elevation.ordinal() == 0) break;
-        }
-        if(riverDirection == this)
-        {
-            for(Polygon polygon: neighborPolygons)
+            @Override
+            public int size()
             {
-                if(polygon.distanceToOcean < riverDirection.distanceToOcean && polygon.riverDirection != this) {
-                    riverDirection = polygon;
-                }
-                if(riverDirection.elevation.ordinal() == 0) break;
+                return end - start;
             }
-        }
-        if(riverDirection == this)
+        };
+    }
+
+    public WaterType getWater()
+    {
+        return attributes.getWater(index);
+    }
+    public void setWater(WaterType water)
+    {
+        attributes.setWater(index, water);
+    }
+    public Polygon getRiverDirection()
+    {
+        return attributes.getPolygon(attributes.getRiverDirection(index));
+    }
+    public void setRiverDirection(Polygon riverDirection)
+    {
+        attributes.setRiverDirection(index, riverDirection == null ? -1 : riverDirection.index);
+    }
+    public Elevation getElevation()
+    {
+        return attributes.getElevation(index);
+    }
+    public void setElevation(Elevation elevation)
+    {
+        attributes.setElevation(index, elevation);
+    }
+    public float getHeight()
+    {
+        return attributes.getHeight(index);
+    }
+    public int getDistanceToOcean()
+    {
+        return attributes.getDistanceToOcean(index);
+    }
+    public void setDistanceToOcean(int distanceToOcean)
+    {
+        attributes.setDistanceToOcean(index, distanceToOcean);
+    }
+    public int getDistanceToLake()
+    {
+        return attributes.getDistanceToLake(index);
+    }
+    public void setDistanceToLake(int distanceToLake)
+    {
+        attributes.setDistanceToLake(index, distanceToLake);
+    }
+    public int getDistanceToRiver()
+    {
+        return attributes.getDistanceToRiver(index);
+    }
+    public int getDistanceToCity()
+    {
+        return attributes.getDistanceToCity(index);
+    }
+    public Moisture getMoisture()
+    {
+        return attributes.getMoisture(index);
+    }
+    public void setMoisture(Moisture moisture)
+    {
+        attributes.setMoisture(index, moisture);
+    }
+    public Temperature getTemperature()
+    {
+        return attributes.getTemperature(index);
+    }
+    public void setTemperature(Temperature temperature)
+    {
+        attributes.setTemperature(index, temperature);
+    }
+    public Biome getBiome()
+    {
+        return attributes.getBiome(index);
+    }
+    public City getCity()
+    {
+        return attributes.getCity(index);
+    }
+    public void setCity(City city)
+    {
+        attributes.setCity(index, city);
+    }
+    public boolean isRiver()
+    {
+        return attributes.isRiver(index);
+    }
+    public void setRiver(boolean river)
+    {
+        attributes.setRiver(index, river);
+    }
+
+    public double getWaterToLandNeighbourRatio()
+    {
+        int degree = attributes.getGraph().degree(index);
+        return degree == 0 ? 0 : (double) attributes.getWaterNeighbourCount(index) / degree;
+    }
+
+    /**
+     * Steepest descent over the filled heights. Water and land without a lower neighbour are outlets and get -1,
+     * the same as in the flow accumulation model.
+     */
+    public void setPotentialRiverDirection()
+    {
+        int riverDirection = index;
+        if(getWater() == WaterType.Land)
         {
-            for(Polygon polygon: neighborPolygons)
+            PolygonGraph graph = attributes.getGraph();
+            for(int k = graph.neighborStart(index); k < graph.neighborEnd(index); k++)
             {
-                if(polygon.river == true && polygon.riverDirection != this)
-                {
-                    riverDirection = polygon;
-                }
+                int neighbour = graph.neighborAt(k);
+                if(attributes.getHeight(neighbour) < attributes.getHeight(riverDirection)) riverDirection = neighbour;
             }
         }
-
+        attributes.setRiverDirection(index, riverDirection == index ? -1 : riverDirection);
     }
     public int getDistanceToWater()
     {
-        if(distanceToOcean > distanceToLake) return distanceToLake;
-        else return distanceToOcean;
+        if(getDistanceToOcean() > getDistanceToLake()) return getDistanceToLake();
+        else return getDistanceToOcean();
     }
     public boolean hasLakeNeighbour()
     {
-        for(Polygon neighbour: neighborPolygons)
-        {
-            if(neighbour.water == WaterType.Lake) return true;
-        }
-        return false;
+        return attributes.getLakeNeighbourCount(index) > 0;
     }
     public boolean hasRiverNeighbour()
     {
-        for(Polygon neighbour: neighborPolygons)
-        {
-            if(neighbour.river == true) return true;
-        }
-        return false;
+        return attributes.getRiverNeighbourCount(index) > 0;
     }
     public boolean hasCityNeighbour()
     {
-        for(Polygon neighbour: neighborPolygons)
-        {
-            if(neighbour.city != null) return true;
-        }
-        return false;
+        return attributes.getCityNeighbourCount(index) > 0;
     }
     public boolean hasOceanNeighbour()
     {
-        for(Polygon neighbour: neighborPolygons)
-        {
-            if(neighbour.water == WaterType.Ocean) return true;
-        }
-        return false;
+        return attributes.getOceanNeighbourCount(index) > 0;
     }
     
     public void setBiome()
     {
-        biome = BiomeChoser.getBiome(this);
+        attributes.setBiomeId(index, BiomeChoser.getBiomeId(attributes.getTemperatureOrdinal(index), attributes.getMoistureOrdinal(index)));
     }
     @Override
     public int compareTo(Polygon o) {
@@ -0,0 +1,394 @@
+package MapGeneration.Graph;
+
+import MapGeneration.Graph.PolygonProperties.*;
+import MapGeneration.Graph.PolygonProperties.Biomes.Biome;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Terrain state of every polygon stored as parallel primitive columns indexed by Polygon.index.
+ * Enum columns hold ordinals, -1 where the value is not assigned yet.
+ * Once the adjacency is known, every polygon also counts its water, ocean, lake, river and city neighbours;
+ * the water, river and city setters update the counts of the neighbours in O(degree).
+ */
+public class PolygonAttributes {
+    private static final WaterType[] WATER_TYPES = WaterType.values();
+    private static final Elevation[] ELEVATIONS = Elevation.values();
+    private static final Moisture[] MOISTURES = Moisture.values();
+    private static final Temperature[] TEMPERATURES = Temperature.values();
+    private static final int OCEAN = WaterType.Ocean.ordinal();
+    private static final int LAKE = WaterType.Lake.ordinal();
+    private static final int LAND = WaterType.Land.ordinal();
+
+    private final Polygon[] polygons;
+    private final byte[] water;
+    private final byte[] elevation;
+    private final float[] height;
+    private final byte[] moisture;
+    private final byte[] temperature;
+    private final byte[] biome;
+    private final int[] distanceToOcean;
+    private final int[] distanceToLake;
+    private final int[] distanceToRiver;
+    private final int[] distanceToCity;
+    private final int[] riverDirection;
+    private final int[] riverFlow;
+    private final int[] basin;
+    private final BitSet river;
+    private final City[] city;
+    private final int[] waterNeighbours;
+    private final int[] oceanNeighbours;
+    private final int[] lakeNeighbours;
+    private final int[] riverNeighbours;
+    private final int[] cityNeighbours;
+    private PolygonGraph graph;
+
+    public PolygonAttributes(int polygonCount)
+    {
+        polygons = new Polygon[polygonCount];
+        water = new byte[polygonCount];
+        elevation = new byte[polygonCount];
+        height = new float[polygonCount];
+        moisture = new byte[polygonCount];
+        temperature = new byte[polygonCount];
+        biome = new byte[polygonCount];
+        distanceToOcean = new int[polygonCount];
+        distanceToLake = new int[polygonCount];
+        distanceToRiver = new int[polygonCount];
+        distanceToCity = new int[polygonCount];
+        riverDirection = new int[polygonCount];
+        riverFlow = new int[polygonCount];
+        basin = new int[polygonCount];
+        river = new BitSet(polygonCount);
+        city = new City[polygonCount];
+        waterNeighbours = new int[polygonCount];
+        oceanNeighbours = new int[polygonCount];
+        lakeNeighbours = new int[polygonCount];
+        riverNeighbours = new int[polygonCount];
+        cityNeighbours = new int[polygonCount];
+        Arrays.fill(water, (byte) -1);
+        Arrays.fill(elevation, (byte) Elevation.Water.ordinal());
+        Arrays.fill(moisture, (byte) -1);
+        Arrays.fill(temperature, (byte) -1);
+        Arrays.fill(biome, (byte) -1);
+        Arrays.fill(distanceToOcean, -1);
+        Arrays.fill(distanceToLake, 999);
+        Arrays.fill(distanceToRiver, -1);
+        Arrays.fill(distanceToCity, -1);
+        Arrays.fill(riverDirection, -1);
+        Arrays.fill(basin, -1);
+    }
+
+    /**
+     * Copy of every column, polygons are not bound to it. Used to roll a map back before a stage runs again.
+     */
+    public PolygonAttributes snapshot()
+    {
+        PolygonAttributes snapshot = new PolygonAttributes(polygons.length);
+        snapshot.restore(this);
+        return snapshot;
+    }
+
+    /**
+     * Overwrites every column with the values of a snapshot of the same size.
+     */
+    public void restore(PolygonAttributes snapshot)
+    {
+        if(snapshot.size() != size()) throw new IllegalArgumentException("Snapshot holds " + snapshot.size() + " polygons, expected " + size());
+        System.arraycopy(snapshot.water, 0, water, 0, water.length);
+        System.arraycopy(snapshot.elevation, 0, elevation, 0, elevation.length);
+        System.arraycopy(snapshot.height, 0, height, 0, height.length);
+        System.arraycopy(snapshot.moisture, 0, moisture, 0, moisture.length);
+        System.arraycopy(snapshot.temperature, 0, temperature, 0, temperature.length);
+        System.arraycopy(snapshot.biome, 0, biome, 0, biome.length);
+        System.arraycopy(snapshot.distanceToOcean, 0, distanceToOcean, 0, distanceToOcean.length);
+        System.arraycopy(snapshot.distanceToLake, 0, distanceToLake, 0, distanceToLake.length);
+        System.arraycopy(snapshot.distanceToRiver, 0, distanceToRiver, 0, distanceToRiver.length);
+        System.arraycopy(snapshot.distanceToCity, 0, distanceToCity, 0, distanceToCity.length);
+        System.arraycopy(snapshot.riverDirection, 0, riverDirection, 0, riverDirection.length);
+        System.arraycopy(snapshot.riverFlow, 0, riverFlow, 0, riverFlow.length);
+        System.arraycopy(snapshot.basin, 0, basin, 0, basin.length);
+        river.clear();
+        river.or(snapshot.river);
+        System.arraycopy(snapshot.city, 0, city, 0, city.length);
+        System.arraycopy(snapshot.waterNeighbours, 0, waterNeighbours, 0, waterNeighbours.length);
+        System.arraycopy(snapshot.oceanNeighbours, 0, oceanNeighbours, 0, oceanNeighbours.length);
+        System.arraycopy(snapshot.lakeNeighbours, 0, lakeNeighbours, 0, lakeNeighbours.length);
+        System.arraycopy(snapshot.riverNeighbours, 0, riverNeighbours, 0, riverNeighbours.length);
+        System.arraycopy(snapshot.cityNeighbours, 0, cityNeighbours, 0, cityNeighbours.length);
+    }
+
+    void bind(Polygon polygon)
+    {
+        polygons[polygon.index] = polygon;
+    }
+
+    public PolygonGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * Adjacency the neighbour counts follow. The counts are rebuilt from the current columns.
+     */
+    public void setGraph(PolygonGraph graph)
+    {
+        if(graph.size() != size()) throw new IllegalArgumentException("Graph holds " + graph.size() + " polygons, expected " + size());
+        this.graph = graph;
+        Arrays.fill(waterNeighbours, 0);
+        Arrays.fill(oceanNeighbours, 0);
+        Arrays.fill(lakeNeighbours, 0);
+        Arrays.fill(riverNeighbours, 0);
+        Arrays.fill(cityNeighbours, 0);
+        for(int polygon = 0; polygon < size(); polygon++)
+        {
+            addWaterNeighbour(polygon, water[polygon], 1);
+            if(river.get(polygon)) addNeighbour(riverNeighbours, polygon, 1);
+            if(city[polygon] != null) addNeighbour(cityNeighbours, polygon, 1);
+        }
+    }
+
+    private void addWaterNeighbour(int polygon, int waterOrdinal, int delta)
+    {
+        if(waterOrdinal < 0 || waterOrdinal == LAND) return;
+        addNeighbour(waterNeighbours, polygon, delta);
+        if(waterOrdinal == OCEAN) addNeighbour(oceanNeighbours, polygon, delta);
+        else if(waterOrdinal == LAKE) addNeighbour(lakeNeighbours, polygon, delta);
+    }
+
+    private void addNeighbour(int[] counts, int polygon, int delta)
+    {
+        if(graph == null) return;
+        for(int k = graph.neighborStart(polygon); k < graph.neighborEnd(polygon); k++) counts[graph.neighborAt(k)] += delta;
+    }
+
+    public int size()
+    {
+        return polygons.length;
+    }
+
+    public Polygon getPolygon(int polygon)
+    {
+        return polygon < 0 ? null : polygons[polygon];
+    }
+
+    public int getWaterOrdinal(int polygon)
+    {
+        return water[polygon];
+    }
+
+    public WaterType getWater(int polygon)
+    {
+        return water[polygon] < 0 ? null : WATER_TYPES[water[polygon]];
+    }
+
+    public void setWater(int polygon, WaterType value)
+    {
+        byte previous = water[polygon];
+        water[polygon] = (byte) (value == null ? -1 : value.ordinal());
+        if(previous == water[polygon]) return;
+        addWaterNeighbour(polygon, previous, -1);
+        addWaterNeighbour(polygon, water[polygon], 1);
+    }
+
+    public int getElevationOrdinal(int polygon)
+    {
+        return elevation[polygon];
+    }
+
+    public Elevation getElevation(int polygon)
+    {
+        return ELEVATIONS[elevation[polygon]];
+    }
+
+    public void setElevation(int polygon, Elevation value)
+    {
+        elevation[polygon] = (byte) value.ordinal();
+    }
+
+    /**
+     * Continuous elevation in polygon steps from the coast, below 0 in the ocean. The Elevation band is its quantization.
+     */
+    public float getHeight(int polygon)
+    {
+        return height[polygon];
+    }
+
+    public void setHeight(int polygon, float value)
+    {
+        height[polygon] = value;
+    }
+
+    public int getMoistureOrdinal(int polygon)
+    {
+        return moisture[polygon];
+    }
+
+    public Moisture getMoisture(int polygon)
+    {
+        return moisture[polygon] < 0 ? null : MOISTURES[moisture[polygon]];
+    }
+
+    public void setMoisture(int polygon, Moisture value)
+    {
+        moisture[polygon] = (byte) (value == null ? -1 : value.ordinal());
+    }
+
+    public int getTemperatureOrdinal(int polygon)
+    {
+        return temperature[polygon];
+    }
+
+    public Temperature getTemperature(int polygon)
+    {
+        return temperature[polygon] < 0 ? null : TEMPERATURES[temperature[polygon]];
+    }
+
+    public void setTemperature(int polygon, Temperature value)
+    {
+        temperature[polygon] = (byte) (value == null ? -1 : value.ordinal());
+    }
+
+    public int getBiomeId(int polygon)
+    {
+        return biome[polygon];
+    }
+
+    public Biome getBiome(int polygon)
+    {
+        return biome[polygon] < 0 ? null : BiomeChoser.getBiomeById(biome[polygon]);
+    }
+
+    public void setBiomeId(int polygon, int biomeId)
+    {
+        biome[polygon] = (byte) biomeId;
+    }
+
+    public int getDistanceToOcean(int polygon)
+    {
+        return distanceToOcean[polygon];
+    }
+
+    public void setDistanceToOcean(int polygon, int distance)
+    {
+        distanceToOcean[polygon] = distance;
+    }
+
+    public int getDistanceToLake(int polygon)
+    {
+        return distanceToLake[polygon];
+    }
+
+    public void setDistanceToLake(int polygon, int distance)
+    {
+        distanceToLake[polygon] = distance;
+    }
+
+    public int getDistanceToRiver(int polygon)
+    {
+        return distanceToRiver[polygon];
+    }
+
+    public void setDistanceToRiver(int polygon, int distance)
+    {
+        distanceToRiver[polygon] = distance;
+    }
+
+    public int getDistanceToCity(int polygon)
+    {
+        return distanceToCity[polygon];
+    }
+
+    public void setDistanceToCity(int polygon, int distance)
+    {
+        distanceToCity[polygon] = distance;
+    }
+
+    public int getRiverDirection(int polygon)
+    {
+        return riverDirection[polygon];
+    }
+
+    public void setRiverDirection(int polygon, int direction)
+    {
+        riverDirection[polygon] = direction;
+    }
+
+    /**
+     * Pixels draining through the polygon, its own included. 0 when the rivers were not made from flow.
+     */
+    public int getRiverFlow(int polygon)
+    {
+        return riverFlow[polygon];
+    }
+
+    public void setRiverFlow(int polygon, int flow)
+    {
+        riverFlow[polygon] = flow;
+    }
+
+    /**
+     * Drainage basin id, -1 when the rivers were not made from flow.
+     */
+    public int getBasin(int polygon)
+    {
+        return basin[polygon];
+    }
+
+    public void setBasin(int polygon, int basinId)
+    {
+        basin[polygon] = basinId;
+    }
+
+    public boolean isRiver(int polygon)
+    {
+        return river.get(polygon);
+    }
+
+    public void setRiver(int polygon, boolean value)
+    {
+        if(river.get(polygon) == value) return;
+        river.set(polygon, value);
+        addNeighbour(riverNeighbours, polygon, value ? 1 : -1);
+    }
+
+    public City getCity(int polygon)
+    {
+        return city[polygon];
+    }
+
+    public void setCity(int polygon, City value)
+    {
+        if((city[polygon] == null) != (value == null)) addNeighbour(cityNeighbours, polygon, value == null ? -1 : 1);
+        city[polygon] = value;
+    }
+
+    /**
+     * Neighbours that are ocean, lake or unspecified water.
+     */
+    public int getWaterNeighbourCount(int polygon)
+    {
+        return waterNeighbours[polygon];
+    }
+
+    public int getOceanNeighbourCount(int polygon)
+    {
+        return oceanNeighbours[polygon];
+    }
+
+    public int getLakeNeighbourCount(int polygon)
+    {
+        return lakeNeighbours[polygon];
+    }
+
+    public int getRiverNeighbourCount(int polygon)
+    {
+        return riverNeighbours[polygon];
+    }
+
+    public int getCityNeighbourCount(int polygon)
+    {
+        return cityNeighbours[polygon];
+    }
+}
@@ -0,0 +1,80 @@
+package MapGeneration.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Frozen polygon adjacency in compressed sparse row form. Neighbours of polygon i are
+ * neighborAt(k) for neighborStart(i) <= k < neighborEnd(i), sorted by polygon index.
+ */
+public class PolygonGraph {
+    private final int[] offsets;
+    private final int[] neighbors;
+
+    public PolygonGraph(int[] offsets, int[] neighbors)
+    {
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    public static long packEdge(int a, int b)
+    {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * Builds the graph from undirected edges packed with packEdge; duplicates are removed by a single sort.
+     */
+    public static PolygonGraph fromEdges(long[] edges, int edgeCount, int polygonCount)
+    {
+        Arrays.sort(edges, 0, edgeCount);
+        int[] offsets = new int[polygonCount + 1];
+        int unique = 0;
+        for(int i = 0; i < edgeCount; i++)
+        {
+            if(i > 0 && edges[i] == edges[i - 1]) continue;
+            edges[unique++] = edges[i];
+            offsets[(int) (edges[i] >>> 32) + 1]++;
+            offsets[(int) edges[i] + 1]++;
+        }
+        for(int i = 0; i < polygonCount; i++) offsets[i + 1] += offsets[i];
+        int[] neighbors = new int[offsets[polygonCount]];
+        int[] fill = Arrays.copyOf(offsets, polygonCount);
+        for(int i = 0; i < unique; i++)
+        {
+            int a = (int) (edges[i] >>> 32), b = (int) edges[i];
+            neighbors[fill[a]++] = b;
+            neighbors[fill[b]++] = a;
+        }
+        return new PolygonGraph(offsets, neighbors);
+    }
+
+    public int size()
+    {
+        return offsets.length - 1;
+    }
+
+    public int edgeCount()
+    {
+        return neighbors.length / 2;
+    }
+
+    public int degree(int polygon)
+    {
+        return offsets[polygon + 1] - offsets[polygon];
+    }
+
+    public int neighborStart(int polygon)
+    {
+        return offsets[polygon];
+    }
+
+    public int neighborEnd(int polygon)
+    {
+        return offsets[polygon + 1];
+    }
+
+    public int neighborAt(int position)
+    {
+        return neighbors[position];
+    }
+}
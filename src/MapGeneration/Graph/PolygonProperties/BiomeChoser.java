@@ -3,9 +3,14 @@ package MapGeneration.Graph.PolygonProperties;
 import MapGeneration.Graph.Polygon;
 import MapGeneration.Graph.PolygonProperties.Biomes.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 public class BiomeChoser {
     private static final Biome biomes[][];
+    private static final byte biomeIds[][];
+    private static final Biome registeredBiomes[];
 
     static {
         biomes = new Biome[][]{
@@ -15,9 +20,34 @@ public class BiomeChoser {
                 {SubtropicalDesert.getInstance(),Grassland.getInstance(),TropicalSeasonalForest.getInstance(),TropicalSeasonalForest.getInstance(),TropicalRainForest.getInstance(),Water.getInstance()},
                 {WasteLandDesert.getInstance(),SubtropicalDesert.getInstance(),Grassland.getInstance(),TropicalSeasonalForest.getInstance(),TropicalSeasonalForest.getInstance(),Water.getInstance()}
         };
+        List<Biome> distinctBiomes = new ArrayList<>();
+        biomeIds = new byte[biomes.length][];
+        for(int temperature = 0; temperature < biomes.length; temperature++)
+        {
+            biomeIds[temperature] = new byte[biomes[temperature].length];
+            for(int moisture = 0; moisture < biomes[temperature].length; moisture++)
+            {
+                Biome biome = biomes[temperature][moisture];
+                if(!distinctBiomes.contains(biome)) distinctBiomes.add(biome);
+                biomeIds[temperature][moisture] = (byte) distinctBiomes.indexOf(biome);
+            }
+        }
+        registeredBiomes = distinctBiomes.toArray(new Biome[0]);
     }
     public static Biome getBiome(Polygon polygon)
     {
-        return biomes[polygon.temperature.ordinal()][polygon.moisture.ordinal()];
+        return biomes[polygon.getTemperature().ordinal()][polygon.getMoisture().ordinal()];
+    }
+    public static int getBiomeId(int temperatureOrdinal, int moistureOrdinal)
+    {
+        return biomeIds[temperatureOrdinal][moistureOrdinal];
+    }
+    public static Biome getBiomeById(int biomeId)
+    {
+        return registeredBiomes[biomeId];
+    }
+    public static int getBiomeCount()
+    {
+        return registeredBiomes.length;
     }
 }
@@ -6,20 +6,20 @@ import java.awt.*;
  * Created by Phoenicia on 02.02.2017.
  */
 public class Bare implements Biome {
-    private static Bare instance;
+    private static final Color COLOR = new Color(187,187,187);
+    private static final Bare instance = new Bare();
     private Bare()
     {
 
     }
     public static Bare getInstance()
     {
-        if(instance == null) instance = new Bare();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(187,187,187);
+        return COLOR;
     }
 
     @Override
@@ -6,14 +6,13 @@ import java.awt.*;
  * Created by Phoenicia on 02.02.2017.
  */
 public class Glacier implements Biome {
-    private static Glacier instance;
+    private static final Glacier instance = new Glacier();
     private Glacier()
     {
 
     }
     public static Glacier getInstance()
     {
-        if(instance == null) instance = new Glacier();
         return instance;
     }
 
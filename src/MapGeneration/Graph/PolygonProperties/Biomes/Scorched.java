@@ -6,20 +6,20 @@ import java.awt.*;
  * Created by Phoenicia on 02.02.2017.
  */
 public class Scorched implements Biome {
-    private static Scorched instance;
+    private static final Color COLOR = new Color(153,153,153);
+    private static final Scorched instance = new Scorched();
     private Scorched()
     {
 
     }
     public static Scorched getInstance()
     {
-        if(instance == null) instance = new Scorched();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(153,153,153);
+        return COLOR;
     }
 
     @Override
@@ -6,20 +6,20 @@ import java.awt.*;
  * Created by Phoenicia on 02.02.2017.
  */
 public class Shrubland implements Biome {
-    private static Shrubland instance;
+    private static final Color COLOR = new Color(140, 205, 97);
+    private static final Shrubland instance = new Shrubland();
     private Shrubland()
     {
 
     }
     public static Shrubland getInstance()
     {
-        if(instance == null) instance = new Shrubland();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(140, 205, 97);
+        return COLOR;
     }
 
     @Override
@@ -4,14 +4,13 @@ import java.awt.*;
 
 
 public class Snow implements Biome {
-    private static Snow instance;
+    private static final Snow instance = new Snow();
     private Snow()
     {
 
     }
     public static Snow getInstance()
     {
-        if(instance == null) instance = new Snow();
         return instance;
     }
 
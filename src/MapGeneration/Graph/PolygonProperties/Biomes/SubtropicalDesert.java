@@ -6,20 +6,20 @@ import java.awt.*;
  * Created by Phoenicia on 02.02.2017.
  */
 public class SubtropicalDesert implements Biome {
-    private static SubtropicalDesert instance;
+    private static final Color COLOR = new Color(229, 233, 146);
+    private static final SubtropicalDesert instance = new SubtropicalDesert();
     private SubtropicalDesert()
     {
 
     }
     public static SubtropicalDesert getInstance()
     {
-        if(instance == null) instance = new SubtropicalDesert();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(229, 233, 146);
+        return COLOR;
     }
 
     @Override
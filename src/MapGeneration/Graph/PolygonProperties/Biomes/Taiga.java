@@ -6,20 +6,20 @@ import java.awt.*;
  * Created by Phoenicia on 02.02.2017.
  */
 public class Taiga implements Biome {
-    private static Taiga instance;
+    private static final Color COLOR = new Color(155,212, 157);
+    private static final Taiga instance = new Taiga();
     private Taiga()
     {
 
     }
     public static Taiga getInstance()
     {
-        if(instance == null) instance = new Taiga();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(155,212, 157);
+        return COLOR;
     }
 
     @Override
@@ -6,20 +6,20 @@ import java.awt.*;
  * Created by Phoenicia on 02.02.2017.
  */
 public class TemperateRainForest implements Biome {
-    private static TemperateRainForest instance;
+    private static final Color COLOR = new Color(124,196, 0);
+    private static final TemperateRainForest instance = new TemperateRainForest();
     private TemperateRainForest()
     {
 
     }
     public static TemperateRainForest getInstance()
     {
-        if(instance == null) instance = new TemperateRainForest();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(124,196, 0);
+        return COLOR;
     }
 
     @Override
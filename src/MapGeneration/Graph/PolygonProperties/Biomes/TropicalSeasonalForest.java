@@ -4,20 +4,20 @@ import java.awt.*;
 
 
 public class TropicalSeasonalForest implements Biome {
-    private static TropicalSeasonalForest instance;
+    private static final Color COLOR = new Color(162, 231, 190);
+    private static final TropicalSeasonalForest instance = new TropicalSeasonalForest();
     private TropicalSeasonalForest()
     {
 
     }
     public static TropicalSeasonalForest getInstance()
     {
-        if(instance == null) instance = new TropicalSeasonalForest();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(162, 231, 190);
+        return COLOR;
     }
 
     @Override
@@ -4,20 +4,20 @@ import java.awt.*;
 
 
 public class Tundra implements Biome {
-    private static Tundra instance;
+    private static final Color COLOR = new Color(189,221, 190);
+    private static final Tundra instance = new Tundra();
     private Tundra()
     {
 
     }
     public static Tundra getInstance()
     {
-        if(instance == null) instance = new Tundra();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(189,221, 190);
+        return COLOR;
     }
 
     @Override
@@ -6,20 +6,20 @@ import java.awt.*;
  * Created by Phoenicia on 02.02.2017.
  */
 public class WasteLandDesert implements Biome {
-    private static WasteLandDesert instance;
+    private static final Color COLOR = new Color(229, 216, 104);
+    private static final WasteLandDesert instance = new WasteLandDesert();
     private WasteLandDesert()
     {
 
     }
     public static WasteLandDesert getInstance()
     {
-        if(instance == null) instance = new WasteLandDesert();
         return instance;
     }
 
     @Override
     public Color getBiomeColor() {
-        return new Color(229, 216, 104);
+        return COLOR;
     }
 
     @Override
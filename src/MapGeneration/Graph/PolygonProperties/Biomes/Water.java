@@ -4,14 +4,13 @@ import java.awt.*;
 
 
 public class Water implements Biome {
-    private static Water instance;
+    private static final Water instance = new Water();
     private Water()
     {
 
     }
     public static Water getInstance()
     {
-        if(instance == null) instance = new Water();
         return instance;
     }
 
@@ -0,0 +1,192 @@
+package MapGeneration.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Pixel coverage of every polygon as horizontal runs (row, xStart, xEnd exclusive) in primitive arrays,
+ * grouped by polygon and ordered by row. Voronoi cells are convex, so a cell normally has one run per row
+ * and its memory depends on its height only. Area, centroid and bounding box are gathered while the runs are built.
+ */
+public class PolygonSpans {
+    private final int[] spanOffsets;
+    private final int[] rows;
+    private final int[] xStarts;
+    private final int[] xEnds;
+    private final int[] areas;
+    private final double[] centroidXs;
+    private final double[] centroidYs;
+    private final int[] minXs;
+    private final int[] minYs;
+    private final int[] maxXs;
+    private final int[] maxYs;
+
+    private PolygonSpans(int polygonCount, int spanCount)
+    {
+        spanOffsets = new int[polygonCount + 1];
+        rows = new int[spanCount];
+        xStarts = new int[spanCount];
+        xEnds = new int[spanCount];
+        areas = new int[polygonCount];
+        centroidXs = new double[polygonCount];
+        centroidYs = new double[polygonCount];
+        minXs = new int[polygonCount];
+        minYs = new int[polygonCount];
+        maxXs = new int[polygonCount];
+        maxYs = new int[polygonCount];
+    }
+
+    /**
+     * Run-length encodes the ownership grid row by row, then groups the runs by owner with a stable counting sort.
+     */
+    public static PolygonSpans fromOwnership(PixelOwnership ownership, int polygonCount)
+    {
+        int xSize = ownership.getXSize(), ySize = ownership.getYSize();
+        int[] runOwners = new int[Math.max(16, ySize * 4)];
+        int[] runStarts = new int[runOwners.length];
+        int runCount = 0;
+        for(int y = 0, index = 0; y < ySize; y++)
+        {
+            int x = 0;
+            while(x < xSize)
+            {
+                int owner = ownership.get(index);
+                int start = x;
+                do
+                {
+                    x++;
+                    index++;
+                } while(x < xSize && ownership.get(index) == owner);
+                if(runCount == runOwners.length)
+                {
+                    runOwners = Arrays.copyOf(runOwners, runCount * 2);
+                    runStarts = Arrays.copyOf(runStarts, runCount * 2);
+                }
+                runOwners[runCount] = owner;
+                // rows and run ends are recovered from the start index, one int per run is enough
+                runStarts[runCount++] = y * xSize + start;
+            }
+        }
+        PolygonSpans spans = new PolygonSpans(polygonCount, runCount);
+        for(int run = 0; run < runCount; run++) spans.spanOffsets[runOwners[run] + 1]++;
+        for(int polygon = 0; polygon < polygonCount; polygon++) spans.spanOffsets[polygon + 1] += spans.spanOffsets[polygon];
+        int[] fill = Arrays.copyOf(spans.spanOffsets, polygonCount);
+        for(int run = 0; run < runCount; run++)
+        {
+            int start = runStarts[run];
+            int end = run + 1 < runCount && runStarts[run + 1] % xSize != 0 ? runStarts[run + 1] : start - start % xSize + xSize;
+            int span = fill[runOwners[run]]++;
+            spans.rows[span] = start / xSize;
+            spans.xStarts[span] = start % xSize;
+            spans.xEnds[span] = spans.xStarts[span] + end - start;
+        }
+        spans.measure();
+        return spans;
+    }
+
+    private void measure()
+    {
+        for(int polygon = 0; polygon < areas.length; polygon++)
+        {
+            long area = 0, sumX2 = 0, sumY = 0;
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+            for(int span = spanOffsets[polygon]; span < spanOffsets[polygon + 1]; span++)
+            {
+                int length = xEnds[span] - xStarts[span];
+                area += length;
+                // twice the sum of x over the run, kept integral
+                sumX2 += (long) (xStarts[span] + xEnds[span] - 1) * length;
+                sumY += (long) rows[span] * length;
+                minX = Math.min(minX, xStarts[span]);
+                maxX = Math.max(maxX, xEnds[span] - 1);
+                minY = Math.min(minY, rows[span]);
+                maxY = Math.max(maxY, rows[span]);
+            }
+            areas[polygon] = (int) area;
+            centroidXs[polygon] = area == 0 ? Double.NaN : sumX2 / (2.0 * area);
+            centroidYs[polygon] = area == 0 ? Double.NaN : sumY / (double) area;
+            minXs[polygon] = area == 0 ? -1 : minX;
+            minYs[polygon] = area == 0 ? -1 : minY;
+            maxXs[polygon] = maxX;
+            maxYs[polygon] = maxY;
+        }
+    }
+
+    public int size()
+    {
+        return areas.length;
+    }
+
+    public int spanCount()
+    {
+        return rows.length;
+    }
+
+    public int spanStart(int polygon)
+    {
+        return spanOffsets[polygon];
+    }
+
+    public int spanEnd(int polygon)
+    {
+        return spanOffsets[polygon + 1];
+    }
+
+    public int spanRow(int span)
+    {
+        return rows[span];
+    }
+
+    public int spanXStart(int span)
+    {
+        return xStarts[span];
+    }
+
+    /**
+     * First x past the run.
+     */
+    public int spanXEnd(int span)
+    {
+        return xEnds[span];
+    }
+
+    public int getArea(int polygon)
+    {
+        return areas[polygon];
+    }
+
+    /**
+     * Mean pixel x of the polygon, NaN if it owns no pixel.
+     */
+    public double getCentroidX(int polygon)
+    {
+        return centroidXs[polygon];
+    }
+
+    public double getCentroidY(int polygon)
+    {
+        return centroidYs[polygon];
+    }
+
+    /**
+     * Bounding box corners are inclusive, -1 if the polygon owns no pixel.
+     */
+    public int getMinX(int polygon)
+    {
+        return minXs[polygon];
+    }
+
+    public int getMinY(int polygon)
+    {
+        return minYs[polygon];
+    }
+
+    public int getMaxX(int polygon)
+    {
+        return maxXs[polygon];
+    }
+
+    public int getMaxY(int polygon)
+    {
+        return maxYs[polygon];
+    }
+}
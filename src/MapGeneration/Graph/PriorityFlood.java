@@ -0,0 +1,120 @@
+package MapGeneration.Graph;
+
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Depression filling by priority flood (Barnes et al.): the outlets are flooded first and the lowest
+ * flooded polygon spills into its unflooded neighbours. A neighbour that is not higher than the polygon
+ * it is flooded from is raised to the next float above it, so afterwards every polygon except the outlets
+ * has a strictly lower neighbour and a strictly descending route to an outlet.
+ * The queue is a binary heap of (height, polygon index) pairs in parallel arrays, ties to the lower index.
+ */
+public class PriorityFlood {
+    private final PolygonGraph graph;
+
+    public PriorityFlood(PolygonGraph graph)
+    {
+        this.graph = graph;
+    }
+
+    /**
+     * Fills the heights in place and returns how many polygons were raised.
+     */
+    public int fill(float[] heights, IntPredicate outlet)
+    {
+        int polygonCount = graph.size();
+        BitSet flooded = new BitSet(polygonCount);
+        Heap heap = new Heap(polygonCount);
+        for(int polygon = 0; polygon < polygonCount; polygon++)
+            if(outlet.test(polygon)) flooded.set(polygon);
+        // outlets surrounded by outlets never spill anywhere, only the shore goes into the queue
+        for(int polygon = flooded.nextSetBit(0); polygon >= 0; polygon = flooded.nextSetBit(polygon + 1))
+        {
+            for(int k = graph.neighborStart(polygon); k < graph.neighborEnd(polygon); k++)
+            {
+                if(flooded.get(graph.neighborAt(k))) continue;
+                heap.push(polygon, heights[polygon]);
+                break;
+            }
+        }
+        int raised = 0;
+        while(!heap.isEmpty())
+        {
+            int polygon = heap.pop();
+            for(int k = graph.neighborStart(polygon); k < graph.neighborEnd(polygon); k++)
+            {
+                int neighbour = graph.neighborAt(k);
+                if(flooded.get(neighbour)) continue;
+                flooded.set(neighbour);
+                if(heights[neighbour] <= heights[polygon])
+                {
+                    heights[neighbour] = Math.nextUp(heights[polygon]);
+                    raised++;
+                }
+                heap.push(neighbour, heights[neighbour]);
+            }
+        }
+        return raised;
+    }
+
+    private static class Heap {
+        private final float[] keys;
+        private final int[] polygons;
+        private int size;
+
+        Heap(int capacity)
+        {
+            keys = new float[Math.max(1, capacity)];
+            polygons = new int[keys.length];
+        }
+
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        // every polygon is pushed at most once, so the capacity is never exceeded
+        void push(int polygon, float key)
+        {
+            int position = size++;
+            while(position > 0)
+            {
+                int parent = (position - 1) >>> 1;
+                if(!isBelow(key, polygon, keys[parent], polygons[parent])) break;
+                keys[position] = keys[parent];
+                polygons[position] = polygons[parent];
+                position = parent;
+            }
+            keys[position] = key;
+            polygons[position] = polygon;
+        }
+
+        int pop()
+        {
+            int top = polygons[0];
+            size--;
+            float lastKey = keys[size];
+            int last = polygons[size];
+            int position = 0;
+            while(true)
+            {
+                int child = 2 * position + 1;
+                if(child >= size) break;
+                if(child + 1 < size && isBelow(keys[child + 1], polygons[child + 1], keys[child], polygons[child])) child++;
+                if(!isBelow(keys[child], polygons[child], lastKey, last)) break;
+                keys[position] = keys[child];
+                polygons[position] = polygons[child];
+                position = child;
+            }
+            keys[position] = lastKey;
+            polygons[position] = last;
+            return top;
+        }
+
+        private static boolean isBelow(float key, int polygon, float otherKey, int other)
+        {
+            return key < otherKey || key == otherKey && polygon < other;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package MapGeneration.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Read-only position queries on a finished map. The polygon under a pixel comes straight from the ownership grid;
+ * nearest, k-nearest, rectangle and radius queries run on uniform bucket grids over the polygon centers and over
+ * the city polygons, both sized to about one entry per cell. Distances are Euclidean to the polygon center, ties
+ * go to the lower polygon index, so inside the map the nearest polygon is the pixel's owner. The cities are taken
+ * when the index is built and later edits to the map are not seen. Nothing is mutated by a query, so one index
+ * can be shared between threads. Every result is a polygon index; for cities use PolygonAttributes.getCity on it.
+ */
+public class SpatialIndex {
+    private final PixelOwnership ownership;
+    private final Buckets polygons;
+    private final Buckets cities;
+
+    public SpatialIndex(int[] centerXs, int[] centerYs, PixelOwnership ownership, PolygonAttributes attributes)
+    {
+        this.ownership = ownership;
+        int xSize = ownership.getXSize(), ySize = ownership.getYSize();
+        int[] all = new int[centerXs.length];
+        for(int polygon = 0; polygon < all.length; polygon++) all[polygon] = polygon;
+        polygons = new Buckets(all, centerXs, centerYs, xSize, ySize);
+        int cityCount = 0;
+        for(int polygon = 0; polygon < all.length; polygon++) if(attributes.getCity(polygon) != null) cityCount++;
+        int[] cityPolygons = new int[cityCount];
+        cityCount = 0;
+        for(int polygon = 0; polygon < all.length; polygon++) if(attributes.getCity(polygon) != null) cityPolygons[cityCount++] = polygon;
+        cities = new Buckets(cityPolygons, centerXs, centerYs, xSize, ySize);
+    }
+
+    public int getCityCount()
+    {
+        return cities.size();
+    }
+
+    /**
+     * Polygon owning the pixel, -1 outside the map.
+     */
+    public int polygonAt(int x, int y)
+    {
+        if(x < 0 || y < 0 || x >= ownership.getXSize() || y >= ownership.getYSize()) return -1;
+        return ownership.get(x, y);
+    }
+
+    /**
+     * Polygon with the closest center, also for points outside the map.
+     */
+    public int nearestPolygon(int x, int y)
+    {
+        return polygons.id(polygons.nearest(x, y, -1));
+    }
+
+    /**
+     * Closest city polygon, -1 if the map has no cities.
+     */
+    public int nearestCity(int x, int y)
+    {
+        return cities.id(cities.nearest(x, y, -1));
+    }
+
+    /**
+     * The k polygons with the closest centers, closest first.
+     */
+    public int[] nearestPolygons(int x, int y, int k)
+    {
+        return polygons.nearestK(x, y, k);
+    }
+
+    /**
+     * The k closest cities, closest first; fewer if the map has fewer cities.
+     */
+    public int[] nearestCities(int x, int y, int k)
+    {
+        return cities.nearestK(x, y, k);
+    }
+
+    /**
+     * Polygons whose center lies in the rectangle, bounds inclusive, in index order.
+     */
+    public int[] polygonsInRectangle(int minX, int minY, int maxX, int maxY)
+    {
+        return polygons.inRectangle(minX, minY, maxX, maxY);
+    }
+
+    public int[] citiesInRectangle(int minX, int minY, int maxX, int maxY)
+    {
+        return cities.inRectangle(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Polygons whose center is at most radius away, in index order.
+     */
+    public int[] polygonsInRadius(int x, int y, int radius)
+    {
+        return polygons.inRadius(x, y, radius);
+    }
+
+    public int[] citiesInRadius(int x, int y, int radius)
+    {
+        return cities.inRadius(x, y, radius);
+    }
+
+    /**
+     * polygonAt for every (xs[i], ys[i]), written to result[i].
+     */
+    public void polygonsAt(int[] xs, int[] ys, int[] result)
+    {
+        checkBulk(xs, ys, result);
+        for(int i = 0; i < xs.length; i++) result[i] = polygonAt(xs[i], ys[i]);
+    }
+
+    /**
+     * nearestPolygon for every (xs[i], ys[i]). Each answer seeds the search for the next one,
+     * so points sorted along a path or in rows are the fastest.
+     */
+    public void nearestPolygons(int[] xs, int[] ys, int[] result)
+    {
+        checkBulk(xs, ys, result);
+        int slot = -1;
+        for(int i = 0; i < xs.length; i++)
+        {
+            slot = polygons.nearest(xs[i], ys[i], slot);
+            result[i] = polygons.id(slot);
+        }
+    }
+
+    public void nearestCities(int[] xs, int[] ys, int[] result)
+    {
+        checkBulk(xs, ys, result);
+        int slot = -1;
+        for(int i = 0; i < xs.length; i++)
+        {
+            slot = cities.nearest(xs[i], ys[i], slot);
+            result[i] = cities.id(slot);
+        }
+    }
+
+    private static void checkBulk(int[] xs, int[] ys, int[] result)
+    {
+        if(ys.length != xs.length || result.length < xs.length)
+            throw new IllegalArgumentException("Coordinate arrays of " + xs.length + " and " + ys.length + " points for " + result.length + " results");
+    }
+
+    /**
+     * Points bucketed by cell, their ids and coordinates copied into cell order so that scanning a cell reads
+     * consecutive memory. Within a cell the points stay in polygon index order. Lookups search outward ring
+     * by ring around the cell of the query, the same way SeedGrid does for rasterization.
+     */
+    private static class Buckets {
+        private final int cellSize;
+        private final int columns;
+        private final int rows;
+        private final int[] cellStart;
+        private final int[] ids;
+        private final int[] xs;
+        private final int[] ys;
+
+        Buckets(int[] members, int[] centerXs, int[] centerYs, int xSize, int ySize)
+        {
+            cellSize = Math.max(1, (int) Math.ceil(Math.sqrt((double) xSize * ySize / Math.max(1, members.length))));
+            columns = (xSize + cellSize - 1) / cellSize;
+            rows = (ySize + cellSize - 1) / cellSize;
+            cellStart = new int[columns * rows + 1];
+            ids = new int[members.length];
+            xs = new int[members.length];
+            ys = new int[members.length];
+            for(int id : members) cellStart[cellOf(projectX(centerXs[id]), projectY(centerYs[id])) + 1]++;
+            for(int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+            int[] fill = Arrays.copyOf(cellStart, columns * rows);
+            for(int id : members)
+            {
+                int slot = fill[cellOf(projectX(centerXs[id]), projectY(centerYs[id]))]++;
+                ids[slot] = id;
+                xs[slot] = centerXs[id];
+                ys[slot] = centerYs[id];
+            }
+        }
+
+        int size()
+        {
+            return ids.length;
+        }
+
+        int id(int slot)
+        {
+            return slot < 0 ? -1 : ids[slot];
+        }
+
+        private int cellOf(int x, int y)
+        {
+            return (y / cellSize) * columns + x / cellSize;
+        }
+
+        // points off the map, queries as well as the centers of a map cut out of a larger one, are placed by their
+        // projection onto the grid; projecting never moves two points farther apart, so the ring bounds stay valid
+        private int projectX(int x)
+        {
+            return Math.max(0, Math.min(columns * cellSize - 1, x));
+        }
+
+        private int projectY(int y)
+        {
+            return Math.max(0, Math.min(rows * cellSize - 1, y));
+        }
+
+        /**
+         * Slot of the closest point, -1 if there are none. The hint is a slot tried first, -1 for none.
+         */
+        int nearest(int x, int y, int hint)
+        {
+            int best = hint;
+            long bestDistance = hint < 0 ? Long.MAX_VALUE : distanceSquared(hint, x, y);
+            int px = projectX(x), py = projectY(y);
+            int cx = px / cellSize, cy = py / cellSize;
+            int edgeGap = edgeGap(px, py);
+            int maxRing = Math.max(columns, rows);
+            for(int ring = 0; ring <= maxRing; ring++)
+            {
+                if(ring > 0)
+                {
+                    long gap = (long) (ring - 1) * cellSize + edgeGap;
+                    if(gap * gap > bestDistance) break;
+                }
+                int minX = cx - ring, maxX = cx + ring, minY = cy - ring, maxY = cy + ring;
+                for(int gy = Math.max(minY, 0); gy <= Math.min(maxY, rows - 1); gy++)
+                {
+                    int step = gy == minY || gy == maxY ? 1 : maxX - minX;
+                    for(int gx = minX; gx <= maxX; gx += step)
+                    {
+                        if(gx < 0 || gx >= columns) continue;
+                        int cell = gy * columns + gx;
+                        for(int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++)
+                        {
+                            long distance = distanceSquared(slot, x, y);
+                            if(distance < bestDistance || (distance == bestDistance && ids[slot] < ids[best]))
+                            {
+                                bestDistance = distance;
+                                best = slot;
+                            }
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Ids of the k closest points, closest first. The candidates are kept sorted by (distance, id)
+         * and a ring is only searched while it can still beat the k-th one.
+         */
+        int[] nearestK(int x, int y, int k)
+        {
+            if(k < 0) throw new IllegalArgumentException("Negative neighbour count " + k);
+            k = Math.min(k, ids.length);
+            int[] found = new int[k];
+            long[] distances = new long[k];
+            int count = 0;
+            if(k == 0) return found;
+            int px = projectX(x), py = projectY(y);
+            int cx = px / cellSize, cy = py / cellSize;
+            int edgeGap = edgeGap(px, py);
+            int maxRing = Math.max(columns, rows);
+            for(int ring = 0; ring <= maxRing; ring++)
+            {
+                if(ring > 0 && count == k)
+                {
+                    long gap = (long) (ring - 1) * cellSize + edgeGap;
+                    if(gap * gap > distances[k - 1]) break;
+                }
+                int minX = cx - ring, maxX = cx + ring, minY = cy - ring, maxY = cy + ring;
+                for(int gy = Math.max(minY, 0); gy <= Math.min(maxY, rows - 1); gy++)
+                {
+                    int step = gy == minY || gy == maxY ? 1 : maxX - minX;
+                    for(int gx = minX; gx <= maxX; gx += step)
+                    {
+                        if(gx < 0 || gx >= columns) continue;
+                        int cell = gy * columns + gx;
+                        for(int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++)
+                        {
+                            long distance = distanceSquared(slot, x, y);
+                            int id = ids[slot];
+                            if(count == k && !isCloser(distance, id, distances[k - 1], found[k - 1])) continue;
+                            int position = count < k ? count++ : k - 1;
+                            while(position > 0 && isCloser(distance, id, distances[position - 1], found[position - 1]))
+                            {
+                                distances[position] = distances[position - 1];
+                                found[position] = found[position - 1];
+                                position--;
+                            }
+                            distances[position] = distance;
+                            found[position] = id;
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+        int[] inRectangle(int minX, int minY, int maxX, int maxY)
+        {
+            return collect(minX, minY, maxX, maxY, 0, 0, -1);
+        }
+
+        int[] inRadius(int x, int y, int radius)
+        {
+            if(radius < 0) return new int[0];
+            return collect(saturate((long) x - radius), saturate((long) y - radius), saturate((long) x + radius), saturate((long) y + radius),
+                    x, y, (long) radius * radius);
+        }
+
+        private static int saturate(long value)
+        {
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+        }
+
+        // ids in the rectangle, and within the radius of (x, y) unless radiusSquared is negative
+        private int[] collect(int minX, int minY, int maxX, int maxY, int x, int y, long radiusSquared)
+        {
+            if(ids.length == 0 || minX > maxX || minY > maxY) return new int[0];
+            int firstColumn = projectX(minX) / cellSize, lastColumn = projectX(maxX) / cellSize;
+            int firstRow = projectY(minY) / cellSize, lastRow = projectY(maxY) / cellSize;
+            int[] found = new int[16];
+            int count = 0;
+            for(int gy = firstRow; gy <= lastRow; gy++)
+            {
+                for(int gx = firstColumn; gx <= lastColumn; gx++)
+                {
+                    int cell = gy * columns + gx;
+                    for(int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++)
+                    {
+                        if(xs[slot] < minX || xs[slot] > maxX || ys[slot] < minY || ys[slot] > maxY) continue;
+                        if(radiusSquared >= 0 && distanceSquared(slot, x, y) > radiusSquared) continue;
+                        if(count == found.length) found = Arrays.copyOf(found, count * 2);
+                        found[count++] = ids[slot];
+                    }
+                }
+            }
+            found = Arrays.copyOf(found, count);
+            Arrays.sort(found);
+            return found;
+        }
+
+        /**
+         * Smallest distance from (px, py) to a point outside its own cell.
+         */
+        private int edgeGap(int px, int py)
+        {
+            int lx = px % cellSize, ly = py % cellSize;
+            return Math.min(Math.min(lx + 1, cellSize - lx), Math.min(ly + 1, cellSize - ly));
+        }
+
+        private static boolean isCloser(long distance, int id, long otherDistance, int other)
+        {
+            return distance < otherDistance || distance == otherDistance && id < other;
+        }
+
+        private long distanceSquared(int slot, int x, int y)
+        {
+            long dx = xs[slot] - (long) x, dy = ys[slot] - (long) y;
+            return dx * dx + dy * dy;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.OptionsField;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonProperties.BiomeChoser;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+public class BiomeStage implements GenerationStage {
+    public static final String NAME = "Biomes";
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public Set<OptionsField> getOptionsDependencies()
+    {
+        return EnumSet.noneOf(OptionsField.class);
+    }
+
+    @Override
+    public Set<String> getStageDependencies()
+    {
+        return new HashSet<>(Arrays.asList(ClimateStage.NAME, RiverStage.NAME));
+    }
+
+    @Override
+    public void run(GenerationContext context)
+    {
+        PolygonAttributes attributes = context.getDiagram().getAttributes();
+        for(int i = 0; i < attributes.size(); i++)
+            attributes.setBiomeId(i, BiomeChoser.getBiomeId(attributes.getTemperatureOrdinal(i), attributes.getMoistureOrdinal(i)));
+        context.countVisited(attributes.size());
+    }
+}
@@ -0,0 +1,187 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.OptionsField;
+import MapGeneration.GenerationSettings.RandomStreams;
+import MapGeneration.Graph.GraphTraversal;
+import MapGeneration.Graph.Polygon;
+import MapGeneration.Graph.PolygonGraph;
+import MapGeneration.Graph.PolygonProperties.WaterType;
+import MapGeneration.VoronoiDiagram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Marks the requested map borders as water, floods the ocean inwards from the corners and grows lakes.
+ */
+public class BodiesOfWaterStage implements GenerationStage {
+    public static final String NAME = "BodiesOfWater";
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public Set<OptionsField> getOptionsDependencies()
+    {
+        return EnumSet.of(OptionsField.TopWater, OptionsField.BottomWater, OptionsField.LeftWater, OptionsField.RightWater, OptionsField.WaterLevelConstant, OptionsField.LandmassMinPercentage, OptionsField.LakeCountModificator, OptionsField.TotalLakeAreaLimitMultipler, OptionsField.LakeSizeLimitModificator, OptionsField.Seed);
+    }
+
+    @Override
+    public Set<String> getStageDependencies()
+    {
+        return new HashSet<>(Arrays.asList(DiagramStage.NAME));
+    }
+
+    @Override
+    public void run(GenerationContext context)
+    {
+        setMapBordersToWater(context.getDiagram(), context.getSettings());
+        createOcean(context);
+        createLakes(context);
+    }
+
+    private void createLakes(GenerationContext context) {
+        VoronoiDiagram diagram = context.getDiagram();
+        GraphTraversal traversal = context.getTraversal();
+        ArrayList<Polygon> landPolygons = new ArrayList<>();
+
+        for(Polygon polygon: diagram.polygons)
+            if(polygon.getWater() == WaterType.Land) landPolygons.add(polygon);
+        int lakeLimit = landPolygons.size()/300 + context.getSettings().getLakeCountModificator();
+        createLakeStartingPoints(context, traversal, landPolygons, lakeLimit);
+        expandLakeSizes(context, traversal, lakeLimit);
+    }
+
+    private void expandLakeSizes(GenerationContext context, GraphTraversal traversal, int lakeLimit) {
+        VoronoiDiagram diagram = context.getDiagram();
+        Options settings = context.getSettings();
+        PolygonGraph graph = diagram.getGraph();
+        int lakeCounter = 0;
+        int lakeSizeCounter = 0;
+        while(!traversal.isEmpty())
+        {
+            int polygon = traversal.poll();
+            for(int k = graph.neighborStart(polygon); k < graph.neighborEnd(polygon); k++)
+            {
+                Polygon neighborPolygon = diagram.polygons.get(graph.neighborAt(k));
+                if(lakeLimit * settings.getTotalLakeAreaLimitMultipler() < lakeCounter) break;
+                if(!traversal.isVisited(neighborPolygon.index) && neighborPolygon.getWater() == WaterType.Land && !neighborPolygon.hasOceanNeighbour())
+                    if(neighborPolygon.getWaterToLandNeighbourRatio() < 1.0-lakeSizeCounter/(double)settings.getLakeSizeLimitModificator())
+                    {
+                        neighborPolygon.setWater(WaterType.Lake);
+                        lakeCounter++;
+                        lakeSizeCounter++;
+                        traversal.offer(neighborPolygon.index);
+                    }
+            }
+        }
+    }
+
+    private void createLakeStartingPoints(GenerationContext context, GraphTraversal traversal, ArrayList<Polygon> landPolygons, int lakeLimit) {
+        int lakeCounter = 0;
+        SplittableRandom random = context.randomStream(RandomStreams.Stage.Lakes);
+
+        for(Polygon polygon: landPolygons)
+        {
+            if(lakeCounter < lakeLimit && !polygon.hasOceanNeighbour() && (double)random.nextInt(landPolygons.size())/landPolygons.size() > 0.995)
+            {
+                polygon.setWater(WaterType.Lake);
+                traversal.offer(polygon.index);
+            }
+        }
+    }
+
+    private void createOcean(GenerationContext context) {
+        VoronoiDiagram diagram = context.getDiagram();
+        GraphTraversal traversal = context.getTraversal();
+        PolygonGraph graph = diagram.getGraph();
+        generateStartingPointsForOceanGenerator(context, traversal);
+        double oceanCounter = 0;
+        while(!traversal.isEmpty())
+        {
+            if(1.0 - (oceanCounter / (double)diagram.polygons.size())< context.getSettings().getLandmassMinPercentage())
+                break;
+            Polygon polygon = diagram.polygons.get(traversal.poll());
+            if(polygon.getWater() == null || polygon.getWater() == WaterType.UnspecifiedWater)
+            {
+                for(int k = graph.neighborStart(polygon.index); k < graph.neighborEnd(polygon.index); k++)
+                    traversal.offer(graph.neighborAt(k));
+                if(polygon.getWater() == null)
+                {
+                    if(polygon.getWaterToLandNeighbourRatio() > getOceanPolygonRation(context.getSettings(), diagram.polygons.size())) {polygon.setWater(WaterType.Ocean);oceanCounter++;}
+                    else polygon.setWater(WaterType.Land);
+                }else {polygon.setWater(WaterType.Ocean); oceanCounter++;}
+            }
+        }
+    }
+    private double logOfBase(double num, int base) {
+        return Math.log(num) / Math.log(base);
+    }
+    private double getOceanPolygonRation(Options settings, int polygonCount) {
+        return 0.3 - logOfBase(((double)polygonCount)/50,3) * settings.getWaterLevelConstant();
+    }
+
+    // seeds are queued even when already marked, the repeated entries are no-ops when polled
+    private void seedOcean(GraphTraversal traversal, Polygon polygon) {
+        traversal.visit(polygon.index);
+        traversal.enqueue(polygon.index);
+    }
+
+    private void generateStartingPointsForOceanGenerator(GenerationContext context, GraphTraversal traversal) {
+        VoronoiDiagram diagram = context.getDiagram();
+        Options settings = context.getSettings();
+        if(settings.isBottomWater() || settings.isLeftWater())
+        {
+            seedOcean(traversal, diagram.getPolygonAt(0,diagram.ySize-1));
+        }
+        if(settings.isBottomWater() || settings.isRightWater())
+        {
+            seedOcean(traversal, diagram.getPolygonAt(diagram.xSize-1,diagram.ySize-1));
+            seedOcean(traversal, getFirstNeighbour(diagram, diagram.getPolygonAt(diagram.xSize-1,diagram.ySize-1)));
+        }
+        if(settings.isTopWater() || settings.isLeftWater())
+        {
+            seedOcean(traversal, diagram.getPolygonAt(0,0));
+        }
+        if(settings.isTopWater() || settings.isRightWater())
+        {
+            seedOcean(traversal, diagram.getPolygonAt(diagram.xSize-1,0));
+        }
+
+        SplittableRandom random = context.randomStream(RandomStreams.Stage.Ocean);
+        if(settings.isBottomWater() && (random.nextInt(3) != 0 || diagram.polygons.size() > 10000))
+        {
+            seedOcean(traversal, diagram.getPolygonAt((int)(diagram.xSize/2),diagram.ySize-1));
+        }
+        if(settings.isTopWater() && random.nextInt(4) == 0)
+        {
+            seedOcean(traversal, diagram.getPolygonAt((int)(diagram.xSize/2),0));
+        }
+    }
+
+    private Polygon getFirstNeighbour(VoronoiDiagram diagram, Polygon polygon) {
+        PolygonGraph graph = diagram.getGraph();
+        return diagram.polygons.get(graph.neighborAt(graph.neighborStart(polygon.index)));
+    }
+
+    private void setMapBordersToWater(VoronoiDiagram diagram, Options settings) {
+        for(int x = 0; x < diagram.xSize; x++)
+        {
+            if(settings.isTopWater())diagram.getPolygonAt(x,0).setWater(WaterType.UnspecifiedWater);
+            if(settings.isBottomWater())diagram.getPolygonAt(x,diagram.ySize-1).setWater(WaterType.UnspecifiedWater);
+        }
+        for(int y = 0; y < diagram.ySize; y++)
+        {
+            if(settings.isLeftWater())diagram.getPolygonAt(0,y).setWater(WaterType.UnspecifiedWater);
+            if(settings.isRightWater())diagram.getPolygonAt(diagram.xSize-1,y).setWater(WaterType.UnspecifiedWater);
+        }
+    }
+}
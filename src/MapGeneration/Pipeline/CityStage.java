@@ -0,0 +1,134 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.OptionsField;
+import MapGeneration.GenerationSettings.RandomStreams;
+import MapGeneration.Graph.DistanceFields;
+import MapGeneration.Graph.Polygon;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonProperties.City;
+import MapGeneration.Graph.PolygonProperties.Elevation;
+import MapGeneration.Graph.PolygonProperties.WaterType;
+import MapGeneration.VoronoiDiagram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Places named cities on attractive land polygons, then computes distances to rivers and cities.
+ */
+public class CityStage implements GenerationStage {
+    public static final String NAME = "Cities";
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public Set<OptionsField> getOptionsDependencies()
+    {
+        return EnumSet.of(OptionsField.CityModifier, OptionsField.CityNames, OptionsField.Seed);
+    }
+
+    @Override
+    public Set<String> getStageDependencies()
+    {
+        return new HashSet<>(Arrays.asList(BodiesOfWaterStage.NAME, ElevationStage.NAME, ClimateStage.NAME, RiverStage.NAME));
+    }
+
+    @Override
+    public void run(GenerationContext context)
+    {
+        VoronoiDiagram diagram = context.getDiagram();
+        int cityCounter = 0;
+        int maxCityNumber;
+        List<Polygon> polygonList = new ArrayList<>();
+        for(Polygon polygon: diagram.polygons)
+        {
+            if(polygon.getWater() == WaterType.Land)
+                polygonList.add(polygon);
+        }
+        maxCityNumber = (int)(context.getSettings().getCityModifier()*(polygonList.size()/100));
+        SplittableRandom random = context.randomStream(RandomStreams.Stage.Cities);
+        List<String> cityNames = new ArrayList<>(context.getSettings().getCityNames());
+        Collections.shuffle(cityNames, RandomStreams.asRandom(random));
+        Collections.shuffle(polygonList, RandomStreams.asRandom(random));
+        for(Polygon polygon: polygonList)
+        {
+            if(polygon.hasCityNeighbour()) continue;
+            int chanceEstimation = estimateCityChance(polygon);
+            if(chanceEstimation > random.nextInt(100))
+            {
+                polygon.setCity(new City(cityNames.get(cityCounter)));
+                cityCounter++;
+            }
+            if(cityCounter >= maxCityNumber || cityCounter >= cityNames.size()) break;
+        }
+        calculateDistancesToRiversAndCities(context);
+    }
+
+    private void calculateDistancesToRiversAndCities(GenerationContext context) {
+        VoronoiDiagram diagram = context.getDiagram();
+        PolygonAttributes attributes = diagram.getAttributes();
+        DistanceFields distanceFields = new DistanceFields(diagram.getGraph(), context.getSettings().getParallelism());
+        int rivers = distanceFields.addField(attributes::isRiver, polygon -> true);
+        int cities = distanceFields.addField(polygon -> attributes.getCity(polygon) != null, polygon -> true);
+        int[][] distances = distanceFields.compute();
+        context.countVisited(distanceFields.getVisitedCount());
+        for(int polygon = 0; polygon < attributes.size(); polygon++)
+        {
+            attributes.setDistanceToRiver(polygon, distances[rivers][polygon]);
+            attributes.setDistanceToCity(polygon, distances[cities][polygon]);
+        }
+    }
+
+    private int estimateCityChance(Polygon polygon)
+    {
+        int chanceEstimation = 0;
+        switch(polygon.getTemperature())
+        {
+            case Frigid:
+                chanceEstimation -=30;
+                break;
+            case Cold:
+                break;
+            case Average:
+                chanceEstimation +=10;
+                break;
+            case Hot:
+                chanceEstimation +=15;
+            case Scorching:
+                break;
+        }
+        switch(polygon.getMoisture())
+        {
+            case SuperWet:
+                chanceEstimation +=10;
+                break;
+            case Wet:
+                chanceEstimation +=10;
+                break;
+            case Normal:
+                chanceEstimation +=5;
+                break;
+            case Dry:
+                chanceEstimation -=5;
+            case SuperDry:
+                chanceEstimation -=20;
+                break;
+        }
+        if(polygon.getElevation() == Elevation.MountainPeaks) chanceEstimation -= 30;
+        if(polygon.hasOceanNeighbour()) chanceEstimation += 40;
+        else if(polygon.hasLakeNeighbour()) chanceEstimation += 20;
+        if(polygon.isRiver()) chanceEstimation += 30;
+            else if(polygon.hasRiverNeighbour()) chanceEstimation +=10;
+        return chanceEstimation;
+    }
+}
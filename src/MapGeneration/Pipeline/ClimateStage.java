@@ -0,0 +1,121 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.OptionsField;
+import MapGeneration.GenerationSettings.RandomStreams;
+import MapGeneration.Graph.Polygon;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonProperties.Elevation;
+import MapGeneration.Graph.PolygonProperties.Moisture;
+import MapGeneration.Graph.PolygonProperties.Temperature;
+import MapGeneration.Graph.PolygonProperties.WaterType;
+import MapGeneration.VoronoiDiagram;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Temperature from latitude and elevation, then moisture from the distance to water.
+ */
+public class ClimateStage implements GenerationStage {
+    public static final String NAME = "Climate";
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public Set<OptionsField> getOptionsDependencies()
+    {
+        return EnumSet.of(OptionsField.Height, OptionsField.Climate, OptionsField.MoistureClimateModificator, OptionsField.Seed);
+    }
+
+    @Override
+    public Set<String> getStageDependencies()
+    {
+        return new HashSet<>(Arrays.asList(BodiesOfWaterStage.NAME, ElevationStage.NAME));
+    }
+
+    @Override
+    public void run(GenerationContext context)
+    {
+        VoronoiDiagram diagram = context.getDiagram();
+        Options settings = context.getSettings();
+        SplittableRandom random = context.randomStream(RandomStreams.Stage.Climate);
+        for(Polygon polygon: diagram.polygons)
+            calculateTemperature(settings, polygon, random);
+        PolygonAttributes attributes = diagram.getAttributes();
+        double polygonCountRoot = Math.sqrt((double)diagram.polygons.size());
+        double superWetLimit = 2.0*polygonCountRoot/(double)80*(double)settings.getMoistureClimateModificator();
+        double wetLimit = 4.0*polygonCountRoot/(double)80*(double)settings.getMoistureClimateModificator();
+        double normalLimit = 10.0*polygonCountRoot/(double)80*(double)settings.getMoistureClimateModificator();
+        double dryLimit = 13.0*polygonCountRoot/(double)80*(double)settings.getMoistureClimateModificator();
+        int land = WaterType.Land.ordinal();
+        for(int i = 0; i < attributes.size(); i++)
+        {
+            if(attributes.getWaterOrdinal(i) != land)
+            {
+                attributes.setMoisture(i, Moisture.LiterallyWater);
+                continue;
+            }
+            int dryness = Math.min(attributes.getDistanceToOcean(i), attributes.getDistanceToLake(i))*attributes.getTemperatureOrdinal(i);
+            if(dryness < superWetLimit) attributes.setMoisture(i, Moisture.SuperWet);
+            else if(dryness < wetLimit) attributes.setMoisture(i, Moisture.Wet);
+            else if(dryness < normalLimit) attributes.setMoisture(i, Moisture.Normal);
+            else if(dryness < dryLimit) attributes.setMoisture(i, Moisture.Dry);
+            else attributes.setMoisture(i, Moisture.SuperDry);
+        }
+        context.countVisited(2L * attributes.size());
+    }
+
+    private void calculateTemperature(Options settings, Polygon polygon, SplittableRandom random) {
+        int tempTemperature = calculateClimateTemperature(settings, polygon, random).ordinal();
+        if(tempTemperature == 0);
+            else
+        if(polygon.getElevation() == Elevation.MountainPeaks)  tempTemperature = 0;
+        else
+        {
+             if(polygon.getElevation() == Elevation.Hight) tempTemperature = tempTemperature - 2;
+                else if(polygon.getElevation() == Elevation.Medium) tempTemperature--;
+            if(tempTemperature <= 0) tempTemperature = 1;
+        }
+            polygon.setTemperature(Temperature.values()[tempTemperature]);
+    }
+
+    private Temperature calculateClimateTemperature(Options settings, Polygon polygon, SplittableRandom random) {
+        int mapMiddle = settings.getYSize()/2;
+        int map1Percent = settings.getYSize()/100;
+        double mod = 1.0-0.1*((double)(random.nextInt(10)-5));
+        switch(settings.getClimate())
+        {
+            case EquatorOnMiddle:
+                if(((mapMiddle - map1Percent*5*mod <= polygon.centerPoint.getY() && mapMiddle >= polygon.centerPoint.getY()) || (mapMiddle + map1Percent*5*mod >= polygon.centerPoint.getY() && mapMiddle <= polygon.centerPoint.getY()))) return Temperature.Scorching;
+                if(((mapMiddle - map1Percent*18*mod < polygon.centerPoint.getY() && mapMiddle > polygon.centerPoint.getY()) || (mapMiddle + map1Percent*18*mod > polygon.centerPoint.getY() && mapMiddle < polygon.centerPoint.getY()))) return Temperature.Hot;
+                if(((mapMiddle - map1Percent*35 < polygon.centerPoint.getY() && mapMiddle > polygon.centerPoint.getY()) || (mapMiddle + map1Percent*35 > polygon.centerPoint.getY() && mapMiddle < polygon.centerPoint.getY()))) return Temperature.Average;
+                if(((mapMiddle - map1Percent*45 < polygon.centerPoint.getY() && mapMiddle > polygon.centerPoint.getY()) || (mapMiddle + map1Percent*45 > polygon.centerPoint.getY() && mapMiddle < polygon.centerPoint.getY()))) return Temperature.Cold;
+                return Temperature.Frigid;
+            case ColdNorth:
+                if(settings.getYSize() - map1Percent*12*mod<= polygon.centerPoint.getY()) return Temperature.Scorching;
+                if(settings.getYSize() - map1Percent*36*mod <= polygon.centerPoint.getY()) return Temperature.Hot;
+                if(settings.getYSize() - map1Percent*70 <= polygon.centerPoint.getY()) return Temperature.Average;
+                if(settings.getYSize() - map1Percent*88 <= polygon.centerPoint.getY()) return Temperature.Cold;
+                return Temperature.Frigid;
+            case ColdSouth:
+                if(settings.getYSize() - map1Percent*12<= polygon.centerPoint.getY()) return Temperature.Frigid;
+                if(settings.getYSize() - map1Percent*28*mod <= polygon.centerPoint.getY()) return Temperature.Cold;
+                if(settings.getYSize() - map1Percent*64*mod <= polygon.centerPoint.getY()) return Temperature.Average;
+                if(settings.getYSize() - map1Percent*88*mod <= polygon.centerPoint.getY()) return Temperature.Hot;
+                return Temperature.Scorching;
+            case UniformTemperature:
+                return Temperature.Average;
+            default:
+
+        }
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.OptionsField;
+import MapGeneration.VoronoiDiagram;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Builds the Voronoi diagram from the settings, skipped when the context already holds one.
+ */
+public class DiagramStage implements GenerationStage {
+    public static final String NAME = "Diagram";
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public Set<OptionsField> getOptionsDependencies()
+    {
+        return EnumSet.of(OptionsField.Width, OptionsField.Height, OptionsField.Polygons, OptionsField.RasterizationMode, OptionsField.PixelStorage, OptionsField.Seed, OptionsField.RelaxationIterations, OptionsField.SeedSampling);
+    }
+
+    @Override
+    public void run(GenerationContext context)
+    {
+        if(context.getDiagram() != null) return;
+        VoronoiDiagram diagram = createDiagram(context.getSettings(), context::reportProgress);
+        context.setDiagram(diagram);
+        context.countVisited(diagram.polygons.size());
+    }
+
+    public static VoronoiDiagram createDiagram(Options settings, IntConsumer progressListener)
+    {
+        VoronoiDiagram diagram = new VoronoiDiagram(settings.getXSize(),settings.getYSize(),settings.getRasterizationMode());
+        diagram.setParallelism(settings.getParallelism());
+        diagram.setPixelStorage(settings.getPixelStorage());
+        diagram.setSeed(settings.getSeed());
+        diagram.setRelaxationIterations(settings.getRelaxationIterations());
+        diagram.setSeedSampling(settings.getSeedSampling());
+        diagram.setProgressListener(progressListener);
+        diagram.generate(settings.getPolygons());
+        return diagram;
+    }
+}
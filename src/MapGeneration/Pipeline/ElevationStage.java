@@ -0,0 +1,162 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.OptionsField;
+import MapGeneration.GenerationSettings.RandomStreams;
+import MapGeneration.Graph.DistanceFields;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonGraph;
+import MapGeneration.Graph.PriorityFlood;
+import MapGeneration.Graph.PolygonProperties.Elevation;
+import MapGeneration.Graph.PolygonProperties.WaterType;
+import MapGeneration.VoronoiDiagram;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Distances to ocean and lakes, then a continuous height from the distance to the ocean and terrain noise,
+ * with its depressions filled, quantized into elevation bands.
+ */
+public class ElevationStage implements GenerationStage {
+    public static final String NAME = "Elevation";
+    // terrain noise spans several distance steps, so it forms real hills and pits on top of the coast distance
+    private static final float TERRAIN_AMPLITUDE = 8f;
+    private static final int TERRAIN_SMOOTHING_ROUNDS = 3;
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public Set<OptionsField> getOptionsDependencies()
+    {
+        return EnumSet.of(OptionsField.Seed);
+    }
+
+    @Override
+    public Set<String> getStageDependencies()
+    {
+        return new HashSet<>(Arrays.asList(BodiesOfWaterStage.NAME));
+    }
+
+    @Override
+    public void run(GenerationContext context)
+    {
+        calculateDistancesToWater(context);
+        setElevations(context);
+    }
+
+    /**
+     * Distance to the ocean coast (spreading through every polygon) and to lakes (spreading through land)
+     * computed in one fused traversal.
+     */
+    private void calculateDistancesToWater(GenerationContext context) {
+        VoronoiDiagram diagram = context.getDiagram();
+        PolygonAttributes attributes = diagram.getAttributes();
+        int land = WaterType.Land.ordinal(), lake = WaterType.Lake.ordinal();
+        DistanceFields distanceFields = new DistanceFields(diagram.getGraph(), context.getSettings().getParallelism());
+        int ocean = distanceFields.addField(polygon -> attributes.getWaterOrdinal(polygon) == land && diagram.polygons.get(polygon).hasOceanNeighbour(), polygon -> true);
+        int lakes = distanceFields.addField(polygon -> attributes.getWaterOrdinal(polygon) == lake, polygon -> attributes.getWaterOrdinal(polygon) == land);
+        int[][] distances = distanceFields.compute();
+        context.countVisited(distanceFields.getVisitedCount());
+        for(int polygon = 0; polygon < attributes.size(); polygon++)
+        {
+            attributes.setDistanceToOcean(polygon, distances[ocean][polygon]);
+            if(distances[lakes][polygon] != DistanceFields.UNREACHED) attributes.setDistanceToLake(polygon, distances[lakes][polygon]);
+        }
+    }
+
+    /**
+     * Land and lakes get their distance to the ocean plus terrain noise several distance steps high, the ocean
+     * gets minus its distance. The noise outweighs the one step a polygon gains over its neighbour nearer the coast
+     * often enough to leave pits, which priority flood fills from the ocean so that every land polygon drains.
+     * The bands use the old distance thresholds, shifted up by the mean of the noise.
+     */
+    private void setElevations(GenerationContext context) {
+        VoronoiDiagram diagram = context.getDiagram();
+        PolygonAttributes attributes = diagram.getAttributes();
+        int maxDistance = 0;
+        int avargeDistanceToOcean = 0;
+        int reachedPolygons = 0;
+        for(int polygon = 0; polygon < attributes.size(); polygon++)
+        {
+            int distance = attributes.getDistanceToOcean(polygon);
+            if(distance == DistanceFields.UNREACHED) continue;
+            if(distance > maxDistance) maxDistance = distance;
+            avargeDistanceToOcean += distance;
+            reachedPolygons++;
+        }
+        avargeDistanceToOcean = avargeDistanceToOcean / Math.max(1, reachedPolygons);
+
+        float[] heights = terrainNoise(diagram.getGraph(), context.randomStream(RandomStreams.Stage.Elevation));
+        int ocean = WaterType.Ocean.ordinal();
+        int lowest = 0;
+        boolean hasOcean = false;
+        for(int polygon = 0; polygon < attributes.size(); polygon++)
+        {
+            int distance = attributes.getDistanceToOcean(polygon);
+            if(attributes.getWaterOrdinal(polygon) == ocean)
+            {
+                heights[polygon] = distance == DistanceFields.UNREACHED ? 0 : -distance;
+                hasOcean = true;
+            }
+            else if(distance != DistanceFields.UNREACHED) heights[polygon] += distance;
+            if(heights[polygon] < heights[lowest]) lowest = polygon;
+        }
+        // without an ocean everything drains to the lowest polygon
+        int outlet = lowest;
+        IntPredicate isOutlet = hasOcean ? polygon -> attributes.getWaterOrdinal(polygon) == ocean : polygon -> polygon == outlet;
+        // the polygons raised out of the pits are counted on top of the two linear passes
+        int raised = new PriorityFlood(diagram.getGraph()).fill(heights, isOutlet);
+
+        for(int polygon = 0; polygon < attributes.size(); polygon++)
+        {
+            attributes.setHeight(polygon, heights[polygon]);
+            if(attributes.getWaterOrdinal(polygon) == ocean || attributes.getDistanceToOcean(polygon) == DistanceFields.UNREACHED)
+            {
+                attributes.setElevation(polygon, Elevation.Water);
+                continue;
+            }
+            float height = heights[polygon] - TERRAIN_AMPLITUDE / 2;
+            if(height < 3) attributes.setElevation(polygon, Elevation.Low);
+            else if(height < avargeDistanceToOcean+5) attributes.setElevation(polygon, Elevation.Medium);
+            else if(height < (maxDistance+8 + avargeDistanceToOcean)/2) attributes.setElevation(polygon, Elevation.Hight);
+            else attributes.setElevation(polygon, Elevation.MountainPeaks);
+        }
+        context.countVisited(2L * attributes.size() + raised);
+    }
+
+    // uniform noise averaged over the neighbours a few times, then stretched back to [0, TERRAIN_AMPLITUDE]
+    private float[] terrainNoise(PolygonGraph graph, SplittableRandom random) {
+        float[] noise = new float[graph.size()];
+        for(int polygon = 0; polygon < noise.length; polygon++) noise[polygon] = (float) random.nextDouble();
+        float[] smoothed = new float[noise.length];
+        for(int round = 0; round < TERRAIN_SMOOTHING_ROUNDS; round++)
+        {
+            for(int polygon = 0; polygon < noise.length; polygon++)
+            {
+                float sum = noise[polygon];
+                for(int k = graph.neighborStart(polygon); k < graph.neighborEnd(polygon); k++) sum += noise[graph.neighborAt(k)];
+                smoothed[polygon] = sum / (1 + graph.degree(polygon));
+            }
+            float[] swap = noise;
+            noise = smoothed;
+            smoothed = swap;
+        }
+        float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+        for(float value: noise)
+        {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        float scale = max > min ? TERRAIN_AMPLITUDE / (max - min) : 0;
+        for(int polygon = 0; polygon < noise.length; polygon++) noise[polygon] = (noise[polygon] - min) * scale;
+        return noise;
+    }
+}
@@ -0,0 +1,86 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.RandomStreams;
+import MapGeneration.Graph.GraphTraversal;
+import MapGeneration.VoronoiDiagram;
+
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * State shared by the stages of one pipeline run: the settings, the diagram being filled in,
+ * a reusable graph traversal and the visited polygon counter the pipeline reports per stage.
+ */
+public class GenerationContext {
+    private final Options settings;
+    private VoronoiDiagram diagram;
+    private GraphTraversal traversal;
+    private VoronoiDiagram traversalDiagram;
+    private long visitedPolygons;
+    private IntConsumer progressListener;
+
+    public GenerationContext(Options settings, VoronoiDiagram diagram)
+    {
+        this.settings = settings;
+        this.diagram = diagram;
+    }
+
+    public Options getSettings()
+    {
+        return settings;
+    }
+
+    public VoronoiDiagram getDiagram()
+    {
+        return diagram;
+    }
+
+    public void setDiagram(VoronoiDiagram diagram)
+    {
+        this.diagram = diagram;
+    }
+
+    public SplittableRandom randomStream(RandomStreams.Stage stage)
+    {
+        return RandomStreams.forStage(settings.getSeed(), stage);
+    }
+
+    /**
+     * The shared traversal, reset for a new flood fill. Its visit marks count towards the current stage.
+     */
+    public GraphTraversal getTraversal()
+    {
+        if(traversal == null || traversalDiagram != diagram)
+        {
+            if(traversal != null) visitedPolygons += traversal.getVisitedCount();
+            traversal = new GraphTraversal(diagram.polygons.size());
+            traversalDiagram = diagram;
+        }
+        traversal.reset();
+        return traversal;
+    }
+
+    /**
+     * Adds polygons visited outside the shared traversal, e.g. by DistanceFields or a linear pass.
+     */
+    public void countVisited(long polygons)
+    {
+        visitedPolygons += polygons;
+    }
+
+    public long getVisitedCount()
+    {
+        return visitedPolygons + (traversal == null ? 0 : traversal.getVisitedCount());
+    }
+
+    public void reportProgress(int percent)
+    {
+        if(progressListener != null) progressListener.accept(percent);
+    }
+
+    void setProgressListener(IntConsumer progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+}
@@ -0,0 +1,179 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.OptionsField;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ordered list of generation stages. run() executes them one after another and records
+ * wall time, allocated bytes and visited polygons for each. With a PipelineSnapshot, rerun
+ * regenerates a finished map after the Options change, starting from the first stage the change reaches.
+ */
+public class GenerationPipeline {
+    private final List<GenerationStage> stages = new ArrayList<>();
+    private final List<PipelineListener> listeners = new ArrayList<>();
+
+    /**
+     * The stages Map runs by default: diagram, bodies of water, elevation, climate, rivers, biomes, cities.
+     */
+    public static GenerationPipeline standard()
+    {
+        return new GenerationPipeline()
+                .addStage(new DiagramStage())
+                .addStage(new BodiesOfWaterStage())
+                .addStage(new ElevationStage())
+                .addStage(new ClimateStage())
+                .addStage(new RiverStage())
+                .addStage(new BiomeStage())
+                .addStage(new CityStage());
+    }
+
+    public GenerationPipeline addStage(GenerationStage stage)
+    {
+        stages.add(stage);
+        return this;
+    }
+
+    /**
+     * Swaps the stage with the given name for another implementation, keeping its position.
+     */
+    public GenerationPipeline replaceStage(String name, GenerationStage stage)
+    {
+        for(int i = 0; i < stages.size(); i++)
+        {
+            if(stages.get(i).getName().equals(name))
+            {
+                stages.set(i, stage);
+                return this;
+            }
+        }
+        throw new IllegalArgumentException("No stage named " + name);
+    }
+
+    public List<GenerationStage> getStages()
+    {
+        return Collections.unmodifiableList(stages);
+    }
+
+    public void addListener(PipelineListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PipelineListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    public PipelineResult run(GenerationContext context)
+    {
+        return run(context, null);
+    }
+
+    /**
+     * Runs every stage and records in the snapshot what rerun needs to resume from any of them later.
+     */
+    public PipelineResult run(GenerationContext context, PipelineSnapshot snapshot)
+    {
+        if(snapshot != null) snapshot.clear(context.getSettings());
+        return runFrom(0, context, snapshot);
+    }
+
+    /**
+     * Regenerates the snapshot's map for the context's settings, running only what the changed Options reach.
+     * The attributes are rolled back to the snapshot taken before the first stage to run, and that stage and
+     * every later one run again: the stages share one attribute store, so later results cannot be kept.
+     * The context must hold the snapshot's diagram. When the diagram itself is affected, or the snapshot
+     * was taken with other stages, everything runs on a new diagram.
+     */
+    public PipelineResult rerun(GenerationContext context, PipelineSnapshot snapshot)
+    {
+        int first = firstStaleStage(snapshot, context.getSettings());
+        if(first == 0 || context.getDiagram() != snapshot.getDiagram()
+                || first < stages.size() && snapshot.getAttributesBefore(first) == null)
+        {
+            context.setDiagram(null);
+            return run(context, snapshot);
+        }
+        if(first < stages.size())
+        {
+            context.getDiagram().getAttributes().restore(snapshot.getAttributesBefore(first));
+            snapshot.dropFrom(first);
+        }
+        snapshot.setSettings(context.getSettings());
+        return runFrom(first, context, snapshot);
+    }
+
+    /**
+     * Names of the stages whose own Options dependencies changed since the snapshot, or which depend on such a stage.
+     */
+    public List<String> staleStages(PipelineSnapshot snapshot, Options settings)
+    {
+        List<String> stale = new ArrayList<>();
+        Set<OptionsField> changed = OptionsField.changed(snapshot.getSettings(), settings);
+        for(GenerationStage stage: stages)
+        {
+            boolean isStale = !Collections.disjoint(stage.getOptionsDependencies(), changed)
+                    || !Collections.disjoint(stage.getStageDependencies(), stale);
+            if(isStale) stale.add(stage.getName());
+        }
+        return stale;
+    }
+
+    // index of the first stage to run again, stages.size() when nothing changed and 0 when the snapshot cannot be used
+    private int firstStaleStage(PipelineSnapshot snapshot, Options settings)
+    {
+        if(snapshot.isEmpty() || snapshot.getDiagram() == null || snapshot.getStageNames().size() != stages.size()) return 0;
+        for(int i = 0; i < stages.size(); i++)
+            if(!stages.get(i).getName().equals(snapshot.getStageNames().get(i))) return 0;
+        List<String> stale = staleStages(snapshot, settings);
+        for(int i = 0; i < stages.size(); i++)
+            if(stale.contains(stages.get(i).getName())) return i;
+        return stages.size();
+    }
+
+    private PipelineResult runFrom(int first, GenerationContext context, PipelineSnapshot snapshot)
+    {
+        PipelineResult result = new PipelineResult();
+        for(GenerationStage stage: stages.subList(first, stages.size()))
+        {
+            if(snapshot != null) snapshot.beforeStage(stage, context.getDiagram());
+            for(PipelineListener listener: listeners) listener.stageStarted(stage);
+            context.setProgressListener(percent -> {
+                for(PipelineListener listener: listeners) listener.stageProgress(stage, percent);
+            });
+            long visitedBefore = context.getVisitedCount();
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            try {
+                stage.run(context);
+            } finally {
+                context.setProgressListener(null);
+            }
+            long wallTime = System.nanoTime() - start;
+            long allocatedAfter = allocatedBytes();
+            StageMetrics metrics = new StageMetrics(stage.getName(), wallTime,
+                    allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore,
+                    context.getVisitedCount() - visitedBefore);
+            result.add(metrics);
+            for(PipelineListener listener: listeners) listener.stageFinished(metrics);
+        }
+        if(snapshot != null) snapshot.finished(context.getDiagram());
+        return result;
+    }
+
+    private static long allocatedBytes()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        if(!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) return -1;
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,33 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.OptionsField;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * One step of map generation. Stages run in pipeline order and share state through the context.
+ * The declared dependencies decide which stages GenerationPipeline.rerun has to run again after the Options change.
+ */
+public interface GenerationStage {
+    String getName();
+
+    void run(GenerationContext context);
+
+    /**
+     * Options values the stage reads. Stages that do not declare theirs depend on all of them.
+     */
+    default Set<OptionsField> getOptionsDependencies()
+    {
+        return EnumSet.allOf(OptionsField.class);
+    }
+
+    /**
+     * Names of the earlier stages whose results the stage reads.
+     */
+    default Set<String> getStageDependencies()
+    {
+        return Collections.emptySet();
+    }
+}
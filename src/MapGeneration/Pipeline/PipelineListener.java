@@ -0,0 +1,12 @@
+package MapGeneration.Pipeline;
+
+/**
+ * Receives stage events from a running GenerationPipeline, all methods are optional.
+ */
+public interface PipelineListener {
+    default void stageStarted(GenerationStage stage) {}
+
+    default void stageProgress(GenerationStage stage, int percent) {}
+
+    default void stageFinished(StageMetrics metrics) {}
+}
@@ -0,0 +1,42 @@
+package MapGeneration.Pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PipelineResult {
+    private final List<StageMetrics> stages = new ArrayList<>();
+
+    void add(StageMetrics metrics)
+    {
+        stages.add(metrics);
+    }
+
+    public List<StageMetrics> getStages()
+    {
+        return Collections.unmodifiableList(stages);
+    }
+
+    public StageMetrics getStage(String name)
+    {
+        for(StageMetrics metrics: stages)
+            if(metrics.getStageName().equals(name)) return metrics;
+        return null;
+    }
+
+    public long getTotalWallTimeNanos()
+    {
+        long total = 0;
+        for(StageMetrics metrics: stages) total += metrics.getWallTimeNanos();
+        return total;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for(StageMetrics metrics: stages) builder.append(metrics).append('\n');
+        builder.append(String.format("%-14s %10.2f ms", "Total", getTotalWallTimeNanos() / 1e6));
+        return builder.toString();
+    }
+}
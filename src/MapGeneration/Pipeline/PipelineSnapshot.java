@@ -0,0 +1,80 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.VoronoiDiagram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What GenerationPipeline.rerun needs to resume a finished run: a copy of the settings it used, the diagram
+ * it filled in and the attributes as they were before every stage that depends on some Options value.
+ * Stages without such dependencies can never be the first to run again, so no copy is kept for them.
+ */
+public class PipelineSnapshot {
+    private Options settings;
+    private VoronoiDiagram diagram;
+    private final List<String> stageNames = new ArrayList<>();
+    private final List<PolygonAttributes> attributesBefore = new ArrayList<>();
+
+    void clear(Options settings)
+    {
+        this.settings = settings.copy();
+        diagram = null;
+        stageNames.clear();
+        attributesBefore.clear();
+    }
+
+    void beforeStage(GenerationStage stage, VoronoiDiagram diagram)
+    {
+        this.diagram = diagram;
+        stageNames.add(stage.getName());
+        boolean keep = diagram != null && !stage.getOptionsDependencies().isEmpty();
+        attributesBefore.add(keep ? diagram.getAttributes().snapshot() : null);
+    }
+
+    void finished(VoronoiDiagram diagram)
+    {
+        this.diagram = diagram;
+    }
+
+    void dropFrom(int stage)
+    {
+        while(stageNames.size() > stage)
+        {
+            stageNames.remove(stageNames.size() - 1);
+            attributesBefore.remove(attributesBefore.size() - 1);
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return settings == null;
+    }
+
+    public Options getSettings()
+    {
+        return settings;
+    }
+
+    void setSettings(Options settings)
+    {
+        this.settings = settings.copy();
+    }
+
+    public VoronoiDiagram getDiagram()
+    {
+        return diagram;
+    }
+
+    List<String> getStageNames()
+    {
+        return stageNames;
+    }
+
+    PolygonAttributes getAttributesBefore(int stage)
+    {
+        return attributesBefore.get(stage);
+    }
+}
@@ -0,0 +1,131 @@
+package MapGeneration.Pipeline;
+
+import MapGeneration.GenerationSettings.OptionsField;
+import MapGeneration.GenerationSettings.RandomStreams;
+import MapGeneration.GenerationSettings.RiverModel;
+import MapGeneration.Graph.DrainageNetwork;
+import MapGeneration.Graph.GraphTraversal;
+import MapGeneration.Graph.Polygon;
+import MapGeneration.Graph.PolygonAttributes;
+import MapGeneration.Graph.PolygonProperties.Elevation;
+import MapGeneration.Graph.PolygonProperties.Moisture;
+import MapGeneration.Graph.PolygonProperties.Temperature;
+import MapGeneration.Graph.PolygonProperties.WaterType;
+import MapGeneration.VoronoiDiagram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * SourceTracing picks river sources on high, wet land and follows each polygon's downhill direction until water.
+ * FlowAccumulation drains every land polygon into its lowest neighbour and turns polygons into rivers once the
+ * area draining through them passes a threshold; the flow and basin of every polygon are kept in the attributes.
+ */
+public class RiverStage implements GenerationStage {
+    public static final String NAME = "Rivers";
+    // drainage area, in average polygons, a flow river starts at before the river count modificator is subtracted
+    private static final int RIVER_DRAINAGE_POLYGONS = 16;
+    private static final int MIN_RIVER_DRAINAGE_POLYGONS = 2;
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public Set<OptionsField> getOptionsDependencies()
+    {
+        return EnumSet.of(OptionsField.RiverCountModificator, OptionsField.RiverModel, OptionsField.Seed);
+    }
+
+    @Override
+    public Set<String> getStageDependencies()
+    {
+        return new HashSet<>(Arrays.asList(BodiesOfWaterStage.NAME, ElevationStage.NAME, ClimateStage.NAME));
+    }
+
+    @Override
+    public void run(GenerationContext context)
+    {
+        if(context.getSettings().getRiverModel() == RiverModel.FlowAccumulation) runFlowAccumulation(context);
+        else runSourceTracing(context);
+    }
+
+    private void runFlowAccumulation(GenerationContext context)
+    {
+        VoronoiDiagram diagram = context.getDiagram();
+        PolygonAttributes attributes = diagram.getAttributes();
+        DrainageNetwork network = new DrainageNetwork(diagram.getGraph(), attributes, diagram.getSpans());
+        int drainagePolygons = Math.max(MIN_RIVER_DRAINAGE_POLYGONS, RIVER_DRAINAGE_POLYGONS - context.getSettings().getRiverCountModificator());
+        long threshold = (long) drainagePolygons * diagram.xSize * diagram.ySize / Math.max(1, attributes.size());
+        int land = WaterType.Land.ordinal(), superWet = Moisture.SuperWet.ordinal();
+        Moisture[] moistures = Moisture.values();
+        for(int polygon = 0; polygon < attributes.size(); polygon++)
+        {
+            attributes.setRiverFlow(polygon, network.getFlow(polygon));
+            attributes.setBasin(polygon, network.getBasin(polygon));
+            attributes.setRiverDirection(polygon, network.getReceiver(polygon));
+            if(attributes.getWaterOrdinal(polygon) != land || network.getFlow(polygon) < threshold) continue;
+            attributes.setRiver(polygon, true);
+            if(attributes.getMoistureOrdinal(polygon) < superWet) attributes.setMoisture(polygon, moistures[attributes.getMoistureOrdinal(polygon)+1]);
+        }
+        context.countVisited(attributes.size());
+    }
+
+    private void runSourceTracing(GenerationContext context)
+    {
+        VoronoiDiagram diagram = context.getDiagram();
+        GraphTraversal traversal = context.getTraversal();
+        PolygonAttributes attributes = diagram.getAttributes();
+
+        int landPolygonCounter = 0;
+        for(Polygon polygon: diagram.polygons)
+        {
+            if(polygon.getWater() == WaterType.Land) landPolygonCounter++;
+            polygon.setPotentialRiverDirection();
+        }
+
+        createRiverStartingPositions(context, traversal, landPolygonCounter);
+        int superWet = Moisture.SuperWet.ordinal();
+        Moisture[] moistures = Moisture.values();
+        while(!traversal.isEmpty())
+        {
+            int polygon = traversal.poll();
+            attributes.setRiver(polygon, true);
+            if(attributes.getMoistureOrdinal(polygon) < superWet) attributes.setMoisture(polygon, moistures[attributes.getMoistureOrdinal(polygon)+1]);
+            int riverDirection = attributes.getRiverDirection(polygon);
+            if(riverDirection >= 0) traversal.offer(riverDirection);
+        }
+
+    }
+
+    private void createRiverStartingPositions(GenerationContext context, GraphTraversal traversal, int landPolygonCounter) {
+        VoronoiDiagram diagram = context.getDiagram();
+        int riverLimit = landPolygonCounter/100 + context.getSettings().getRiverCountModificator();
+        SplittableRandom random = context.randomStream(RandomStreams.Stage.Rivers);
+        int riverCounter = 0;
+        ArrayList<Polygon> polygons = new ArrayList<>(diagram.polygons);
+        Collections.shuffle(polygons, RandomStreams.asRandom(random));
+        for(Polygon polygon: polygons)
+        {
+            if(polygon.getWater() == WaterType.Land
+                    && riverCounter < riverLimit
+                    && (polygon.getTemperature() != Temperature.Frigid
+                    || polygon.getElevation() == Elevation.MountainPeaks)
+                    && polygon.getElevation().ordinal() >=2
+                    && polygon.getMoisture().ordinal() >= 2
+                    && (double)random.nextInt(polygon.getElevation().ordinal() * landPolygonCounter)/(landPolygonCounter) > 0.995)
+            {
+                riverCounter++;
+                polygon.setRiver(true);
+                traversal.offer(polygon.index);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package MapGeneration.Pipeline;
+
+/**
+ * Cost of one stage run. Allocated bytes cover the thread that ran the pipeline only
+ * (work done on fork-join workers is not included) and are -1 when the JVM cannot measure them.
+ */
+public class StageMetrics {
+    private final String stageName;
+    private final long wallTimeNanos;
+    private final long allocatedBytes;
+    private final long visitedPolygons;
+
+    public StageMetrics(String stageName, long wallTimeNanos, long allocatedBytes, long visitedPolygons)
+    {
+        this.stageName = stageName;
+        this.wallTimeNanos = wallTimeNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.visitedPolygons = visitedPolygons;
+    }
+
+    public String getStageName()
+    {
+        return stageName;
+    }
+
+    public long getWallTimeNanos()
+    {
+        return wallTimeNanos;
+    }
+
+    public double getWallTimeMillis()
+    {
+        return wallTimeNanos / 1e6;
+    }
+
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    public long getVisitedPolygons()
+    {
+        return visitedPolygons;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%-14s %10.2f ms %14d B %12d visited", stageName, getWallTimeMillis(), allocatedBytes, visitedPolygons);
+    }
+}
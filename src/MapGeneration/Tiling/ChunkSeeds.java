@@ -0,0 +1,61 @@
+package MapGeneration.Tiling;
+
+import MapGeneration.GenerationSettings.RandomStreams;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Polygon seeds of one tile, drawn from the tile's own random stream so any tile can be regenerated
+ * without the others. Seeds are sorted by x, then y, and their global id is the tile index in the
+ * high 32 bits and the position in this list in the low 32 bits.
+ */
+class ChunkSeeds {
+    final int[] xs;
+    final int[] ys;
+
+    private ChunkSeeds(int[] xs, int[] ys)
+    {
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    static ChunkSeeds generate(long worldSeed, int tileX, int tileY, int tileSize, int polygonsPerTile)
+    {
+        SplittableRandom random = RandomStreams.forChunk(worldSeed, tileX, tileY);
+        long[] packed = new long[polygonsPerTile];
+        for(int i = 0; i < polygonsPerTile; i++)
+            packed[i] = ((long) random.nextInt(tileSize) << 32) | random.nextInt(tileSize);
+        Arrays.sort(packed);
+        int count = 0;
+        for(int i = 0; i < packed.length; i++)
+            if(i == 0 || packed[i] != packed[i - 1]) packed[count++] = packed[i];
+        int[] xs = new int[count], ys = new int[count];
+        for(int i = 0; i < count; i++)
+        {
+            xs[i] = tileX * tileSize + (int) (packed[i] >>> 32);
+            ys[i] = tileY * tileSize + (int) packed[i];
+        }
+        return new ChunkSeeds(xs, ys);
+    }
+
+    int size()
+    {
+        return xs.length;
+    }
+
+    static long seedId(int tileIndex, int seed)
+    {
+        return ((long) tileIndex << 32) | seed;
+    }
+
+    static int tileIndexOf(long seedId)
+    {
+        return (int) (seedId >>> 32);
+    }
+
+    static int seedOf(long seedId)
+    {
+        return (int) seedId;
+    }
+}
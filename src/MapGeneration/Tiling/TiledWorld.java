@@ -0,0 +1,347 @@
+package MapGeneration.Tiling;
+
+import MapGeneration.DiagramGeneration.SeedGrid;
+import MapGeneration.GenerationSettings.Options;
+import MapGeneration.GenerationSettings.RandomStreams;
+import MapGeneration.Graph.PixelOwnership;
+import MapGeneration.Map;
+import MapGeneration.VoronoiDiagram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A world split into square tiles that are generated on demand. Every tile draws its seeds from its own
+ * stream of the world seed, and every pixel belongs to the nearest seed in the whole world (ties to the
+ * lowest seed id). A tile is rasterized from the seeds of the tiles around it, widening the ring only
+ * for pixels whose nearest seed could lie further out, so adjacent tiles agree exactly along their borders.
+ * Only a bounded number of tiles is kept in memory, the rest is written to the tile directory.
+ *
+ * Terrain is generated per region (a rectangle of tiles) by the normal Map pipeline. Ownership and
+ * adjacency are seamless across regions; terrain stages see only their region.
+ */
+public class TiledWorld {
+    private static final int SEED_CACHE_SIZE = 64;
+
+    private final Options template;
+    private final long worldSeed;
+    private final int tileSize;
+    private final int tilesX;
+    private final int tilesY;
+    private final int polygonsPerTile;
+    private final Path directory;
+    private final String worldKey;
+    private final LinkedHashMap<Integer, WorldTile> loadedTiles;
+    private final LinkedHashMap<Integer, ChunkSeeds> seedCache;
+
+    public TiledWorld(Options template, int tileSize, int tilesX, int tilesY, int polygonsPerTile, Path directory, int cachedTiles) throws IOException
+    {
+        if((long) tileSize * tilesX > Integer.MAX_VALUE || (long) tileSize * tilesY > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("World is wider than the int pixel coordinate range");
+        if((long) tilesX * tilesY > Integer.MAX_VALUE) throw new IllegalArgumentException("World has too many tiles");
+        if(polygonsPerTile < 1) throw new IllegalArgumentException("Every tile needs at least one polygon");
+        this.template = template;
+        this.worldSeed = template.getSeed();
+        this.tileSize = tileSize;
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.polygonsPerTile = polygonsPerTile;
+        this.directory = directory;
+        worldKey = Long.toHexString(worldSeed) + "-" + tileSize + "-" + tilesX + "x" + tilesY + "-" + polygonsPerTile;
+        Files.createDirectories(directory);
+        int tileCapacity = Math.max(1, cachedTiles);
+        loadedTiles = new LinkedHashMap<Integer, WorldTile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Integer, WorldTile> eldest)
+            {
+                if(size() <= tileCapacity) return false;
+                evict(eldest.getValue());
+                return true;
+            }
+        };
+        seedCache = new LinkedHashMap<Integer, ChunkSeeds>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Integer, ChunkSeeds> eldest)
+            {
+                return size() > SEED_CACHE_SIZE;
+            }
+        };
+    }
+
+    public int getTileSize()
+    {
+        return tileSize;
+    }
+
+    public int getTilesX()
+    {
+        return tilesX;
+    }
+
+    public int getTilesY()
+    {
+        return tilesY;
+    }
+
+    /**
+     * Global id of the seed owning the world pixel (x, y).
+     */
+    public synchronized long getOwnerId(int x, int y)
+    {
+        return getTile(x / tileSize, y / tileSize).getOwnerId(x % tileSize, y % tileSize);
+    }
+
+    /**
+     * World coordinates of a seed, as {x, y}.
+     */
+    public synchronized int[] getSeedPosition(long seedId)
+    {
+        int tileIndex = ChunkSeeds.tileIndexOf(seedId);
+        ChunkSeeds seeds = getSeeds(tileIndex % tilesX, tileIndex / tilesX);
+        return new int[]{seeds.xs[ChunkSeeds.seedOf(seedId)], seeds.ys[ChunkSeeds.seedOf(seedId)]};
+    }
+
+    /**
+     * The tile from memory, from the tile directory, or freshly rasterized, in that order.
+     */
+    public synchronized WorldTile getTile(int tileX, int tileY)
+    {
+        checkTile(tileX, tileY);
+        int tileIndex = tileY * tilesX + tileX;
+        WorldTile tile = loadedTiles.get(tileIndex);
+        if(tile != null) return tile;
+        Path file = tileFile(tileX, tileY);
+        try {
+            if(Files.exists(file))
+            {
+                try(InputStream in = Files.newInputStream(file)) {
+                    tile = WorldTile.read(in);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read tile " + tileX + "," + tileY, e);
+        }
+        if(tile == null) tile = rasterizeTile(tileX, tileY);
+        loadedTiles.put(tileIndex, tile);
+        return tile;
+    }
+
+    /**
+     * Generates the terrain of a rectangle of tiles as one Map. Polygons cut by the region border are
+     * included with their pixels inside the region; their centers may lie outside of it.
+     */
+    public synchronized Map generateRegion(int tileX, int tileY, int tilesWide, int tilesHigh)
+    {
+        checkTile(tileX, tileY);
+        checkTile(tileX + tilesWide - 1, tileY + tilesHigh - 1);
+        if((long) tilesWide * tilesHigh * tileSize * tileSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Region has too many pixels for one Map");
+        int width = tilesWide * tileSize, height = tilesHigh * tileSize;
+        long[] regionSeeds = collectRegionSeeds(tileX, tileY, tilesWide, tilesHigh);
+        PixelOwnership ownership = new PixelOwnership(width, height, regionSeeds.length);
+        for(int ty = 0; ty < tilesHigh; ty++)
+        {
+            for(int tx = 0; tx < tilesWide; tx++)
+                getTile(tileX + tx, tileY + ty).copyInto(ownership, tx * tileSize, ty * tileSize, regionSeeds);
+        }
+        int originX = tileX * tileSize, originY = tileY * tileSize;
+        int[] xs = new int[regionSeeds.length], ys = new int[regionSeeds.length];
+        for(int i = 0; i < regionSeeds.length; i++)
+        {
+            int[] position = getSeedPosition(regionSeeds[i]);
+            xs[i] = position[0] - originX;
+            ys[i] = position[1] - originY;
+        }
+        VoronoiDiagram diagram = VoronoiDiagram.restore(xs, ys, ownership, template.getPixelStorage());
+        Options settings = template.copy(width, height, regionSeeds.length);
+        settings.setSeed(RandomStreams.forChunk(worldSeed, tileX, tileY).split().nextLong());
+        Map map = new Map(settings);
+        map.getMap(diagram);
+        return map;
+    }
+
+    /**
+     * Writes every loaded tile that is not on disk yet, e.g. before the world is closed.
+     */
+    public synchronized void flush()
+    {
+        for(WorldTile tile: loadedTiles.values()) evict(tile);
+    }
+
+    /**
+     * Drops all tiles from memory, writing those that are not on disk yet.
+     */
+    public synchronized void unloadAll()
+    {
+        for(Iterator<WorldTile> tiles = loadedTiles.values().iterator(); tiles.hasNext(); )
+        {
+            evict(tiles.next());
+            tiles.remove();
+        }
+    }
+
+    private long[] collectRegionSeeds(int tileX, int tileY, int tilesWide, int tilesHigh)
+    {
+        long[] seeds = new long[64];
+        int count = 0;
+        for(int ty = 0; ty < tilesHigh; ty++)
+        {
+            for(int tx = 0; tx < tilesWide; tx++)
+            {
+                WorldTile tile = getTile(tileX + tx, tileY + ty);
+                long previous = -1;
+                for(int y = 0; y < tileSize; y++)
+                {
+                    for(int x = 0; x < tileSize; x++)
+                    {
+                        long seedId = tile.getOwnerId(x, y);
+                        if(seedId == previous) continue;
+                        previous = seedId;
+                        if(count == seeds.length) count = sortUnique(seeds, count);
+                        if(count == seeds.length) seeds = Arrays.copyOf(seeds, count * 2);
+                        seeds[count++] = seedId;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(seeds, sortUnique(seeds, count));
+    }
+
+    private static int sortUnique(long[] values, int count)
+    {
+        Arrays.sort(values, 0, count);
+        int unique = 0;
+        for(int i = 0; i < count; i++)
+            if(i == 0 || values[i] != values[i - 1]) values[unique++] = values[i];
+        return unique;
+    }
+
+    /**
+     * Nearest seed for every pixel of the tile, searched among the tiles within a growing ring. A pixel is
+     * settled once its nearest seed is strictly closer than anything outside the searched block could be.
+     */
+    private WorldTile rasterizeTile(int tileX, int tileY)
+    {
+        int pixelCount = tileSize * tileSize;
+        int[] pending = new int[pixelCount];
+        for(int i = 0; i < pixelCount; i++) pending[i] = i;
+        int pendingCount = pixelCount;
+        int[] owners = new int[pixelCount];
+        long[] tileSeeds = new long[0];
+        HashMap<Long, Integer> tileSeedPositions = new HashMap<>();
+        for(int ring = 1; pendingCount > 0; ring++)
+        {
+            int fromX = Math.max(0, tileX - ring), toX = Math.min(tilesX - 1, tileX + ring);
+            int fromY = Math.max(0, tileY - ring), toY = Math.min(tilesY - 1, tileY + ring);
+            int originX = fromX * tileSize, originY = fromY * tileSize;
+            int blockWidth = (toX - fromX + 1) * tileSize, blockHeight = (toY - fromY + 1) * tileSize;
+            int seedCount = 0;
+            for(int ty = fromY; ty <= toY; ty++)
+                for(int tx = fromX; tx <= toX; tx++) seedCount += getSeeds(tx, ty).size();
+            // collected in tile index order, so array order is seed id order and SeedGrid ties go to the lowest id
+            int[] xs = new int[seedCount], ys = new int[seedCount];
+            long[] ids = new long[seedCount];
+            int next = 0;
+            for(int ty = fromY; ty <= toY; ty++)
+            {
+                for(int tx = fromX; tx <= toX; tx++)
+                {
+                    ChunkSeeds seeds = getSeeds(tx, ty);
+                    for(int i = 0; i < seeds.size(); i++)
+                    {
+                        xs[next] = seeds.xs[i] - originX;
+                        ys[next] = seeds.ys[i] - originY;
+                        ids[next++] = ChunkSeeds.seedId(ty * tilesX + tx, i);
+                    }
+                }
+            }
+            SeedGrid grid = new SeedGrid(xs, ys, blockWidth, blockHeight);
+            boolean openLeft = fromX > 0, openRight = toX < tilesX - 1, openTop = fromY > 0, openBottom = toY < tilesY - 1;
+            int remaining = 0, hint = 0;
+            for(int k = 0; k < pendingCount; k++)
+            {
+                int pixel = pending[k];
+                int x = tileX * tileSize + pixel % tileSize - originX, y = tileY * tileSize + pixel / tileSize - originY;
+                int owner = grid.nearest(x, y, hint);
+                hint = owner;
+                long dx = xs[owner] - x, dy = ys[owner] - y;
+                long best = dx * dx + dy * dy;
+                long gap = Long.MAX_VALUE;
+                if(openLeft) gap = Math.min(gap, x + 1);
+                if(openRight) gap = Math.min(gap, blockWidth - x);
+                if(openTop) gap = Math.min(gap, y + 1);
+                if(openBottom) gap = Math.min(gap, blockHeight - y);
+                if(gap != Long.MAX_VALUE && best >= gap * gap)
+                {
+                    pending[remaining++] = pixel;
+                    continue;
+                }
+                Integer position = tileSeedPositions.get(ids[owner]);
+                if(position == null)
+                {
+                    position = tileSeedPositions.size();
+                    tileSeedPositions.put(ids[owner], position);
+                    if(position == tileSeeds.length) tileSeeds = Arrays.copyOf(tileSeeds, Math.max(16, position * 2));
+                    tileSeeds[position] = ids[owner];
+                }
+                owners[pixel] = position;
+            }
+            pendingCount = remaining;
+        }
+        tileSeeds = Arrays.copyOf(tileSeeds, tileSeedPositions.size());
+        PixelOwnership ownership = new PixelOwnership(tileSize, tileSize, tileSeeds.length);
+        for(int i = 0; i < pixelCount; i++) ownership.set(i, owners[i]);
+        return new WorldTile(tileX, tileY, tileSeeds, ownership);
+    }
+
+    private ChunkSeeds getSeeds(int tileX, int tileY)
+    {
+        int tileIndex = tileY * tilesX + tileX;
+        ChunkSeeds seeds = seedCache.get(tileIndex);
+        if(seeds == null)
+        {
+            seeds = ChunkSeeds.generate(worldSeed, tileX, tileY, tileSize, polygonsPerTile);
+            seedCache.put(tileIndex, seeds);
+        }
+        return seeds;
+    }
+
+    private void evict(WorldTile tile)
+    {
+        Path file = tileFile(tile.tileX, tile.tileY);
+        if(Files.exists(file)) return;
+        try {
+            Path temporary = Files.createTempFile(directory, "tile", ".tmp");
+            try {
+                try(OutputStream out = Files.newOutputStream(temporary)) {
+                    tile.write(out);
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write tile " + tile.tileX + "," + tile.tileY, e);
+        }
+    }
+
+    private Path tileFile(int tileX, int tileY)
+    {
+        return directory.resolve("tile-" + worldKey + "-" + tileX + "-" + tileY + ".bin");
+    }
+
+    private void checkTile(int tileX, int tileY)
+    {
+        if(tileX < 0 || tileY < 0 || tileX >= tilesX || tileY >= tilesY)
+            throw new IndexOutOfBoundsException("Tile " + tileX + "," + tileY + " is outside the " + tilesX + "x" + tilesY + " world");
+    }
+}
@@ -0,0 +1,87 @@
+package MapGeneration.Tiling;
+
+import MapGeneration.Graph.PixelOwnership;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Pixel ownership of one tile. Owners are stored as positions in the tile's seed id table, so a tile
+ * needs only as many bits per pixel as the seeds around it require.
+ */
+public class WorldTile {
+    private static final int MAGIC = 0x57544C45;
+
+    public final int tileX;
+    public final int tileY;
+    private final long[] seedIds;
+    private final PixelOwnership ownership;
+
+    WorldTile(int tileX, int tileY, long[] seedIds, PixelOwnership ownership)
+    {
+        this.tileX = tileX;
+        this.tileY = tileY;
+        this.seedIds = seedIds;
+        this.ownership = ownership;
+    }
+
+    public int getSize()
+    {
+        return ownership.getXSize();
+    }
+
+    /**
+     * Global id of the seed owning the pixel at tile-local (x, y).
+     */
+    public long getOwnerId(int x, int y)
+    {
+        return seedIds[ownership.get(x, y)];
+    }
+
+    /**
+     * Writes the tile's pixels into a larger grid with the tile's corner at (originX, originY). Owners become
+     * positions in the sorted seed ids, which must hold every seed owning a pixel of the tile.
+     */
+    void copyInto(PixelOwnership target, int originX, int originY, long[] sortedSeedIds)
+    {
+        int[] targetOwners = new int[seedIds.length];
+        for(int i = 0; i < seedIds.length; i++) targetOwners[i] = Arrays.binarySearch(sortedSeedIds, seedIds[i]);
+        int size = getSize();
+        for(int y = 0; y < size; y++)
+        {
+            int source = y * size, row = (originY + y) * target.getXSize() + originX;
+            for(int x = 0; x < size; )
+            {
+                int owner = ownership.get(source + x), end = x + 1;
+                while(end < size && ownership.get(source + end) == owner) end++;
+                target.fill(row + x, row + end, targetOwners[owner]);
+                x = end;
+            }
+        }
+    }
+
+    void write(OutputStream stream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(tileX);
+        out.writeInt(tileY);
+        out.writeInt(ownership.getXSize());
+        out.writeInt(seedIds.length);
+        for(long seedId: seedIds) out.writeLong(seedId);
+        for(int i = 0; i < ownership.size(); i++) out.writeInt(ownership.get(i));
+        out.flush();
+    }
+
+    static WorldTile read(InputStream stream) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if(in.readInt() != MAGIC) throw new IOException("Not a world tile");
+        int tileX = in.readInt(), tileY = in.readInt(), size = in.readInt();
+        long[] seedIds = new long[in.readInt()];
+        for(int i = 0; i < seedIds.length; i++) seedIds[i] = in.readLong();
+        PixelOwnership ownership = new PixelOwnership(size, size, seedIds.length);
+        for(int i = 0; i < ownership.size(); i++) ownership.set(i, in.readInt());
+        return new WorldTile(tileX, tileY, seedIds, ownership);
+    }
+}
@@ -1,75 +1,510 @@
 package MapGeneration;
 
+import MapGeneration.DiagramGeneration.DelaunayTriangulation;
+import MapGeneration.DiagramGeneration.EdgeBuffer;
+import MapGeneration.DiagramGeneration.PoissonDiskSampler;
+import MapGeneration.DiagramGeneration.RowEnvelope;
+import MapGeneration.DiagramGeneration.SeedGrid;
+import MapGeneration.DiagramGeneration.SeedLocator;
+import MapGeneration.GenerationSettings.PixelStorage;
+import MapGeneration.GenerationSettings.RandomStreams;
+import MapGeneration.GenerationSettings.RasterizationMode;
+import MapGeneration.GenerationSettings.SeedSampling;
 import MapGeneration.Graph.*;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class VoronoiDiagram {
     public final int xSize;
     public final int ySize;
     public Point[][] pixelPoints;
     public ArrayList<Polygon> polygons;
-    private Point [] directions = {new Point(-1,0), new Point(0,-1)};
+    private PixelOwnership ownership;
+    private PolygonGraph graph;
+    private PolygonSpans spans;
+    private PolygonAttributes attributes;
+    private final RasterizationMode rasterizationMode;
+    private PixelStorage pixelStorage = PixelStorage.OwnershipGrid;
+    private int parallelism = 1;
+    private long seed = new Random().nextLong();
+    private int relaxationIterations;
+    private SeedSampling seedSampling = SeedSampling.UniformRandom;
+    private IntConsumer progressListener;
     public VoronoiDiagram(int x, int y)
+    {
+        this(x, y, RasterizationMode.SeedGrid);
+    }
+    public VoronoiDiagram(int x, int y, RasterizationMode rasterizationMode)
     {
         xSize = x;
         ySize = y;
+        this.rasterizationMode = rasterizationMode;
+    }
+    public void setParallelism(int parallelism)
+    {
+        this.parallelism = Math.max(1, parallelism);
+    }
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+    /**
+     * Rounds of Lloyd relaxation run after the first rasterization, 0 keeps the random seeds.
+     */
+    public void setRelaxationIterations(int relaxationIterations)
+    {
+        this.relaxationIterations = Math.max(0, relaxationIterations);
+    }
+    public void setSeedSampling(SeedSampling seedSampling)
+    {
+        this.seedSampling = seedSampling;
+    }
+    public void setPixelStorage(PixelStorage pixelStorage)
+    {
+        this.pixelStorage = pixelStorage;
+    }
+    /**
+     * Receives the completed percentage of the brute-force rasterization, null for none.
+     */
+    public void setProgressListener(IntConsumer progressListener)
+    {
+        this.progressListener = progressListener;
     }
     public void generate(int polyCount)
     {
-        pixelPoints = new Point[xSize][ySize];
-        polygons = generateCentralPoints(polyCount);
-        generateVoronoiPixelDiagram();
+        generate(generateCentralPoints(polyCount));
+    }
+    /**
+     * Builds the diagram around the given centers instead of random ones. The centers must be distinct pixels
+     * sorted by x, then y, the order random centers are generated in; polygon i gets center i.
+     */
+    public void generate(int[] centerXs, int[] centerYs)
+    {
+        if(centerXs.length != centerYs.length) throw new IllegalArgumentException(centerXs.length + " x coordinates for " + centerYs.length + " y coordinates");
+        for(int i = 1; i < centerXs.length; i++)
+        {
+            if(centerXs[i] < centerXs[i - 1] || (centerXs[i] == centerXs[i - 1] && centerYs[i] <= centerYs[i - 1]))
+                throw new IllegalArgumentException("Center " + i + " is not after center " + (i - 1) + " in x, then y order");
+        }
+        generate(createPolygons(centerXs, centerYs));
+    }
+    private void generate(ArrayList<Polygon> centers)
+    {
+        polygons = centers;
+        ownership = new PixelOwnership(xSize, ySize, polygons.size());
+        switch(rasterizationMode)
+        {
+            case Delaunay:
+                generateLocatorPixelDiagram(new DelaunayTriangulation(getCenterXs(), getCenterYs()));
+                break;
+            case SeedGrid:
+                generateLocatorPixelDiagram(new SeedGrid(getCenterXs(), getCenterYs(), xSize, ySize));
+                break;
+            case BruteForce:
+            default:
+                generateVoronoiPixelDiagram();
+        }
+        if(relaxationIterations > 0) relax(relaxationIterations);
+        setNeighbourPolygons();
+        spans = PolygonSpans.fromOwnership(ownership, polygons.size());
+        pixelPoints = null;
+        if(pixelStorage == PixelStorage.PointGrid) createPixelPoints();
+    }
+
+    public PixelOwnership getOwnership()
+    {
+        return ownership;
+    }
+
+    public PolygonGraph getGraph()
+    {
+        return graph;
+    }
+
+    public PolygonSpans getSpans()
+    {
+        return spans;
+    }
+
+    public PolygonAttributes getAttributes()
+    {
+        return attributes;
+    }
+
+    public int getOwnerIndex(int x, int y)
+    {
+        return ownership.get(x, y);
+    }
+
+    public Polygon getPolygonAt(int x, int y)
+    {
+        return polygons.get(ownership.get(x, y));
+    }
+
+    /**
+     * Position queries over the polygons and the cities placed so far; build it once the map is finished.
+     */
+    public SpatialIndex createSpatialIndex()
+    {
+        return new SpatialIndex(getCenterXs(), getCenterYs(), ownership, attributes);
+    }
+
+    private int[] getCenterXs() {
+        int[] xs = new int[polygons.size()];
+        for(int i = 0; i < xs.length; i++) xs[i] = polygons.get(i).centerPoint.getX();
+        return xs;
+    }
+
+    private int[] getCenterYs() {
+        int[] ys = new int[polygons.size()];
+        for(int i = 0; i < ys.length; i++) ys[i] = polygons.get(i).centerPoint.getY();
+        return ys;
+    }
+
+    private void generateLocatorPixelDiagram(SeedLocator locator) {
+        forEachStripe(stripe -> rasterizeStripe(locator, stripeStart(stripe), stripeStart(stripe + 1)));
+    }
+
+    /**
+     * Lloyd relaxation: each round moves every seed to the centroid of its cell, then reassigns the pixels.
+     * The reassignment goes row by row. The new owner of a pixel is never farther than the moved seed of its
+     * current owner, so the current runs bound how far from the row the candidate seeds can be, and the row
+     * is filled from the lower envelope of just those seeds instead of a nearest-seed search per pixel.
+     * Ties still go to the lowest index, so the result is the exact Voronoi diagram of the moved seeds
+     * whatever the rasterization mode.
+     */
+    private void relax(int iterations) {
+        int[] xs = getCenterXs(), ys = getCenterYs();
+        int bands = Math.max(1, Math.min(ySize, parallelism));
+        CellSums sums = sumCells(bands, null, null, null);
+        for(int round = 0; round < iterations; round++)
+        {
+            moveSeedsToCentroids(xs, ys, sums);
+            sums = sumCells(bands, new RowEnvelope(xs, ys, ySize), xs, ys);
+        }
+        polygons = createPolygons(xs, ys);
     }
 
+    /**
+     * Sums the runs of every cell in one parallel pass over row bands. With an envelope the rows are
+     * first reassigned to the nearest of the given seeds and the sums describe the new cells.
+     */
+    private CellSums sumCells(int bands, RowEnvelope sharedEnvelope, int[] xs, int[] ys) {
+        CellSums[] bandSums = new CellSums[bands];
+        forEachTask(bands, band -> {
+            CellSums sums = new CellSums(polygons.size());
+            RowEnvelope envelope = sharedEnvelope == null ? null : new RowEnvelope(sharedEnvelope);
+            for(int y = (int)((long)ySize * band / bands); y < (int)((long)ySize * (band + 1) / bands); y++)
+            {
+                if(envelope == null) sumRow(y, sums);
+                else reassignRow(y, envelope, xs, ys, sums);
+            }
+            bandSums[band] = sums;
+        });
+        for(int band = 1; band < bands; band++) bandSums[0].addAll(bandSums[band]);
+        return bandSums[0];
+    }
+
+    private void sumRow(int y, CellSums sums) {
+        int x = 0;
+        while(x < xSize)
+        {
+            int owner = ownership.get(x, y);
+            int end = x + 1;
+            while(end < xSize && ownership.get(end, y) == owner) end++;
+            sums.add(owner, y, x, end);
+            x = end;
+        }
+    }
+
+    private void reassignRow(int y, RowEnvelope envelope, int[] xs, int[] ys, CellSums sums) {
+        // distance along a run is largest at one of its ends
+        long reach = 0;
+        int x = 0;
+        while(x < xSize)
+        {
+            int owner = ownership.get(x, y);
+            int end = x + 1;
+            while(end < xSize && ownership.get(end, y) == owner) end++;
+            reach = Math.max(reach, Math.max(distanceSquared(xs, ys, owner, x, y), distanceSquared(xs, ys, owner, end - 1, y)));
+            x = end;
+        }
+        int segments = envelope.build(y, reach, xSize);
+        for(int segment = 0; segment < segments; segment++)
+        {
+            int from = envelope.segmentStart(segment), to = envelope.segmentEnd(segment);
+            ownership.fill(y * xSize + from, y * xSize + to, envelope.owner(segment));
+            sums.add(envelope.owner(segment), y, from, to);
+        }
+    }
+
+    private static long distanceSquared(int[] xs, int[] ys, int seed, int x, int y) {
+        long dx = xs[seed] - x, dy = ys[seed] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Rounds every centroid to the nearest pixel. A seed whose target is taken by an earlier one stays
+     * where it is, or takes the closest free pixel if that is taken too, so no two seeds ever coincide.
+     */
+    private void moveSeedsToCentroids(int[] xs, int[] ys, CellSums sums) {
+        BitSet taken = new BitSet(xSize * ySize);
+        for(int seed = 0; seed < xs.length; seed++)
+        {
+            long area = sums.areas[seed];
+            int x = xs[seed], y = ys[seed];
+            if(area > 0)
+            {
+                int centroidX = (int) ((sums.doubledSumXs[seed] + area) / (2 * area));
+                int centroidY = (int) ((2 * sums.sumYs[seed] + area) / (2 * area));
+                if(!taken.get(centroidY * xSize + centroidX))
+                {
+                    x = centroidX;
+                    y = centroidY;
+                }
+            }
+            if(taken.get(y * xSize + x))
+            {
+                int free = closestFreePixel(taken, x, y);
+                x = free % xSize;
+                y = free / xSize;
+            }
+            xs[seed] = x;
+            ys[seed] = y;
+            taken.set(y * xSize + x);
+        }
+    }
+
+    private int closestFreePixel(BitSet taken, int x, int y) {
+        for(int ring = 1; ; ring++)
+        {
+            int best = -1;
+            long bestDistance = Long.MAX_VALUE;
+            for(int py = Math.max(0, y - ring); py <= Math.min(ySize - 1, y + ring); py++)
+            {
+                for(int px = Math.max(0, x - ring); px <= Math.min(xSize - 1, x + ring); px++)
+                {
+                    long distance = (long) (px - x) * (px - x) + (long) (py - y) * (py - y);
+                    if(distance < bestDistance && !taken.get(py * xSize + px))
+                    {
+                        bestDistance = distance;
+                        best = py * xSize + px;
+                    }
+                }
+            }
+            if(best >= 0) return best;
+        }
+    }
+
+    /**
+     * Pixel count and coordinate sums of every cell, x doubled to keep run sums integral.
+     */
+    private static class CellSums {
+        final long[] areas;
+        final long[] doubledSumXs;
+        final long[] sumYs;
+
+        CellSums(int polygonCount)
+        {
+            areas = new long[polygonCount];
+            doubledSumXs = new long[polygonCount];
+            sumYs = new long[polygonCount];
+        }
+
+        void add(int owner, int y, int fromX, int toX)
+        {
+            int length = toX - fromX;
+            areas[owner] += length;
+            doubledSumXs[owner] += (long) (fromX + toX - 1) * length;
+            sumYs[owner] += (long) y * length;
+        }
+
+        void addAll(CellSums other)
+        {
+            for(int i = 0; i < areas.length; i++)
+            {
+                areas[i] += other.areas[i];
+                doubledSumXs[i] += other.doubledSumXs[i];
+                sumYs[i] += other.sumYs[i];
+            }
+        }
+    }
+
+    private int stripeCount() {
+        return parallelism > 1 ? Math.min(xSize, parallelism * 4) : 1;
+    }
+
+    private int stripeStart(int stripe) {
+        return (int)((long)xSize * stripe / stripeCount());
+    }
+
+    private void forEachStripe(IntConsumer task) {
+        forEachTask(stripeCount(), task);
+    }
+
+    /**
+     * Tasks run on the shared pool for the parallelism when it is above one, inline otherwise.
+     */
+    private void forEachTask(int taskCount, IntConsumer task) {
+        ForkJoinPool pool = WorkerPools.forParallelism(parallelism);
+        if(taskCount == 1 || pool == null)
+        {
+            IntStream.range(0, taskCount).forEach(task);
+            return;
+        }
+        try {
+            pool.submit(() -> IntStream.range(0, taskCount).parallel().forEach(task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Voronoi rasterization interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Voronoi rasterization failed", e.getCause());
+        }
+    }
+
+    private void rasterizeStripe(SeedLocator locator, int fromX, int toX) {
+        int owner = 0;
+        for(int y = 0; y < ySize; y++)
+        {
+            for(int x = fromX; x < toX; x++)
+            {
+                owner = locator.nearest(x, y, owner);
+                ownership.set(x, y, owner);
+            }
+        }
+    }
+
+    /**
+     * Each stripe collects the polygon pairs it sees across pixel borders, the merged pairs are
+     * then frozen into the CSR graph by one sort, independent of the thread count.
+     */
+    private void setNeighbourPolygons() {
+        EdgeBuffer[] stripeEdges = new EdgeBuffer[stripeCount()];
+        forEachStripe(stripe -> stripeEdges[stripe] = collectStripeAdjacency(stripeStart(stripe), stripeStart(stripe + 1)));
+        EdgeBuffer edges = stripeEdges[0];
+        for(int stripe = 1; stripe < stripeEdges.length; stripe++) edges.addAll(stripeEdges[stripe]);
+        graph = edges.toGraph(polygons.size());
+        attachGraph();
+    }
+
+    // polygons read their neighbours from the graph through the attributes, no per-polygon lists are kept
+    private void attachGraph() {
+        attributes.setGraph(graph);
+    }
+
+    private EdgeBuffer collectStripeAdjacency(int fromX, int toX) {
+        EdgeBuffer edges = new EdgeBuffer();
+        for(int y = 0; y < ySize; y++)
+        {
+            for(int x = fromX; x < toX; x++)
+            {
+                int owner = ownership.get(x, y);
+                if(x > 0 && ownership.get(x - 1, y) != owner) edges.add(owner, ownership.get(x - 1, y));
+                if(y > 0 && ownership.get(x, y - 1) != owner) edges.add(owner, ownership.get(x, y - 1));
+            }
+        }
+        return edges;
+    }
+
+    private void createPixelPoints() {
+        pixelPoints = new Point[xSize][ySize];
+        for(int x = 0; x < xSize; x++)
+        {
+            for(int y = 0; y < ySize; y++)
+            {
+                Polygon ownerPolygon = getPolygonAt(x, y);
+                pixelPoints[x][y] = new Point(x,y,ownerPolygon);
+            }
+        }
+    }
 
     private void generateVoronoiPixelDiagram() {
+        int progressStep = Math.max(1, xSize/100);
         for(int x = 0; x < xSize; x++)
         {
             for(int y = 0; y < ySize;y++)
             {
-                Polygon ownerPolygon = polygons.get(0);
+                int owner = 0;
                 Point currentPixel = new Point(x,y);
-                for(Polygon polygon: polygons)
+                for(int i = 1; i < polygons.size(); i++)
                 {
-                    if(ownerPolygon.centerPoint.distanceTo(currentPixel) > polygon.centerPoint.distanceTo(currentPixel))
-                        ownerPolygon = polygon;
+                    if(polygons.get(owner).centerPoint.distanceTo(currentPixel) > polygons.get(i).centerPoint.distanceTo(currentPixel))
+                        owner = i;
                 }
-                pixelPoints[x][y] = new Point(x,y,ownerPolygon);
-                ownerPolygon.polygonPixels.add(pixelPoints[x][y]);
-                setNeighbourPolygons(pixelPoints[x][y]);
+                ownership.set(x, y, owner);
             }
-            if(x % (xSize/100) == 0) System.out.println("Progress: " + x/(xSize/100) + "%");
+            if(progressListener != null && x % progressStep == 0) progressListener.accept(x/progressStep);
         }
     }
-    private void setNeighbourPolygons(Point point)
-    {
-       for(Point direction: directions)
-       {
-           int tempX = point.getX() + direction.getX(), tempY = point.getY()+direction.getY();
-           if(tempX < xSize && tempX >= 0 && tempY < ySize && tempY >= 0)
-           {
-               Point tempPoint = pixelPoints[tempX][tempY];
-               if(tempPoint.parentPolygon != point.parentPolygon){
-                   if(!point.parentPolygon.neighborPolygons.contains(tempPoint.parentPolygon))point.parentPolygon.neighborPolygons.add(tempPoint.parentPolygon);
-                   if(!tempPoint.parentPolygon.neighborPolygons.contains(point.parentPolygon))tempPoint.parentPolygon.neighborPolygons.add(point.parentPolygon);
-               }
-           }
-       }
-    }
 
     private ArrayList<Polygon> generateCentralPoints(int polyCount) {
-        ArrayList newPolygons = new ArrayList();
-        Random random = new Random();
+        SplittableRandom random = RandomStreams.forStage(seed, RandomStreams.Stage.CentralPoints);
+        if(seedSampling == SeedSampling.PoissonDisk) return createPolygons(new PoissonDiskSampler(xSize, ySize).sample(polyCount, random));
         SortedSet<Point> polygonCenters = new TreeSet();
         for(int i = 0; i < polyCount; i++)
         {
             polygonCenters.add(new Point(random.nextInt(xSize),random.nextInt(ySize)));
         }
+        int[] xs = new int[polygonCenters.size()], ys = new int[polygonCenters.size()];
+        int index = 0;
         for(Point point: polygonCenters)
         {
-            newPolygons.add(new Polygon(point.getX(),point.getY()));
+            xs[index] = point.getX();
+            ys[index++] = point.getY();
+        }
+        return createPolygons(xs, ys);
+    }
+
+    private ArrayList<Polygon> createPolygons(long[] packedSeeds) {
+        int[] xs = new int[packedSeeds.length], ys = new int[packedSeeds.length];
+        for(int i = 0; i < packedSeeds.length; i++)
+        {
+            xs[i] = (int) (packedSeeds[i] >>> 32);
+            ys[i] = (int) packedSeeds[i];
+        }
+        return createPolygons(xs, ys);
+    }
+
+    private ArrayList<Polygon> createPolygons(int[] xs, int[] ys) {
+        ArrayList<Polygon> newPolygons = new ArrayList<>(xs.length);
+        attributes = new PolygonAttributes(xs.length);
+        for(int i = 0; i < xs.length; i++)
+        {
+            newPolygons.add(new Polygon(i,xs[i],ys[i],attributes));
         }
         return newPolygons;
     }
+
+    /**
+     * Rebuilds a diagram from its centers and ownership grid, deriving the adjacency from the grid as generate does.
+     */
+    public static VoronoiDiagram restore(int[] centerXs, int[] centerYs, PixelOwnership ownership, PixelStorage pixelStorage)
+    {
+        return restore(centerXs, centerYs, ownership, null, pixelStorage);
+    }
+
+    /**
+     * Rebuilds a generated diagram from its stored centers, ownership grid and adjacency.
+     * Terrain attributes start out empty and are filled in by the caller.
+     */
+    public static VoronoiDiagram restore(int[] centerXs, int[] centerYs, PixelOwnership ownership, PolygonGraph graph, PixelStorage pixelStorage)
+    {
+        VoronoiDiagram diagram = new VoronoiDiagram(ownership.getXSize(), ownership.getYSize());
+        diagram.pixelStorage = pixelStorage;
+        diagram.polygons = diagram.createPolygons(centerXs, centerYs);
+        diagram.ownership = ownership;
+        if(graph == null) diagram.setNeighbourPolygons();
+        else
+        {
+            diagram.graph = graph;
+            diagram.attachGraph();
+        }
+        diagram.spans = PolygonSpans.fromOwnership(ownership, diagram.polygons.size());
+        if(pixelStorage == PixelStorage.PointGrid) diagram.createPixelPoints();
+        return diagram;
+    }
 }
@@ -0,0 +1,26 @@
+package MapGeneration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fork-join pools shared by all parallel passes, so a pass does not start and stop its own threads.
+ * A parallelism equal to the processor count runs on the common pool, any other level gets one pool
+ * created on first use and kept for the life of the JVM. Idle workers of these pools end after a while
+ * and are restarted on demand; their threads are daemons, so the pools never keep the JVM alive.
+ */
+public final class WorkerPools {
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private WorkerPools() {}
+
+    /**
+     * Pool for the given parallelism, null when the work should run on the calling thread.
+     */
+    public static ForkJoinPool forParallelism(int parallelism)
+    {
+        if(parallelism <= 1) return null;
+        if(parallelism == Runtime.getRuntime().availableProcessors()) return ForkJoinPool.commonPool();
+        return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+}